@@ -7,9 +7,7 @@ import gurobi.GRB;
 import gurobi.GRBException;
 
 import java.io.File;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 
 public class AlgoRunner {
@@ -58,6 +56,34 @@ public class AlgoRunner {
         Param.useHeuristics = true;
         Param.dominanceFlag = true;
         Param.fathomingFlag = true;
+        Param.searchDirection = getSearchDirection();
+        Param.jobOrder = "INDEX";
+        // the pricing and master modes below ship off, none of them has run with the Gurobi RMP
+        Param.dpPricingFlag = false;
+        Param.tieredPricingFlag = false;
+        Param.symmetryFlag = false;
+        Param.patternCacheFlag = false;
+        Param.incrementalPricingFlag = false;
+        Param.pricingTimeBudget = 0; // no budget, every call is exhaustive
+        Param.pricingLabelBudget = 0;
+        Param.poolPricingFlag = false;
+        Param.maxNumOfPoolColumns = 50;
+        Param.maxColumnAge = 0;
+        Param.columnAgeReducedCost = 1;
+        Param.pricingPortfolioFlag = false;
+        Param.masterBackend = "GUROBI";
+        Param.warmStartBasisFlag = false;
+        Param.farkasPricingFlag = false;
+        Param.lagrangianBoundFlag = false;
+        Param.stabilization = "NONE";
+        Param.smoothingAlpha = 0.5;
+        Param.boxWidth = 0.1;
+        Param.boxSlack = 0.1;
+        Param.enumerationFlag = false;
+        Param.enumerationMaxGap = 20;
+        Param.enumerationMaxColumns = 20_000;
+        Param.enumerateRootColumns = false; // off: no faster on Bat Pequena with the SIMPLEX RMP, not run with Gurobi
+        Param.maxNumOfRootColumns = 50_000;
         Param.T = 50;
         Param.t = 20;
         Param.experimentCondition = "eachT~U2";
@@ -94,6 +120,15 @@ public class AlgoRunner {
          return "Bat Low2010-T2";
         // return "Bat Pequena";
     }
+    /**
+     * FORWARD, BACKWARD or BIDIR label setting in pricing
+     * bidirectional labels only go half way, BIDIR is meant for the large T of Bat Low2010-T1 but not benchmarked yet
+     */
+    private String getSearchDirection() {
+        // return "BIDIR";
+        return "FORWARD";
+    }
+
     private String getDataPath() {
         return "./data/" + Param.dataSetName;
     }
@@ -144,7 +179,9 @@ public class AlgoRunner {
                     "timeCost, timeOnRoot, timeOnCG, timeOnRMP, timeOnPP, timeOnHeuristics, " +
                     "cntRMPCall, cntPPCall, cntHeuristicsCall, " +
                     "numOfNodes, numOfNodesSolved, numOfNodesRemained, numOfNodesPrunedByInfeasible, numOfNodesPrunedByBound, numOfNodesPrunedByOptimal, " +
-                    "numOfLabels, numOfLabelsPrunedByLb, numOfLabelsDominated";
+                    "numOfLabels, numOfLabelsPrunedByLb, numOfLabelsDominated, jobOrder, stabilization, cntMisprice, " +
+                    "warmStartBasis, numOfRMPIterations, numOfBasisRestores, " +
+                    "farkasPricing, cntFarkasPricing";
         }
         return title;
     }
@@ -230,14 +267,10 @@ public class AlgoRunner {
 
             Base.renewRandom();
             Master master = new Master(instance);
-            ArrayList<Block> allBlocks = findFeasibleBlocks(instance);
-            System.out.println("the all blocks add to the root node:  " + allBlocks.size());
-            for (Block block : allBlocks) {
-                System.out.println(block.toString());
-            }
-            master.addColumnsWithoutCheck(allBlocks);
-            master.model.optimize();
-            boolean feasible = (master.model.get(GRB.IntAttr.Status) == GRB.OPTIMAL);
+            BlockEnumerator enumerator = new BlockEnumerator(instance, BlockEnumerator.CHUNK_SIZE, Param.nThreads);
+            long numOfBlocks = enumerator.enumerate(master::addColumnsWithoutCheck, Long.MAX_VALUE);
+            System.out.println("the maximal blocks added to the root node:  " + numOfBlocks);
+            boolean feasible = master.lp.optimize();
             if (feasible) {
                 System.out.println("master : objVal = " + String.format("%.8f", master.getObjValue()) +
                         "  colSize = " + master.columnPool.size());
@@ -246,45 +279,4 @@ public class AlgoRunner {
 
         }
     }
-
-    public static ArrayList<Block> findFeasibleBlocks(Instance instance) {
-        ArrayList<Block> blocks = new ArrayList<>();
-        Block currentBlock = new Block();
-        int totalTime = 0;
-
-        backtrack(instance, 0, totalTime, currentBlock, blocks);
-
-        return blocks;
-    }
-
-    private static void backtrack(Instance instance, int index, int totalTime, Block currentBlock, List<Block> blocks) {
-        if (totalTime > 50) {
-            return; // 如果当前 Block 的总处理时间超过 50，直接返回
-        }
-
-        if (index == instance.p.length) {
-            Block newBlock = new Block(currentBlock);
-            if (totalTime != currentBlock.processingTime) {
-                System.err.println("ERROR! total Time not equal to block's processingTime");
-                System.out.println(currentBlock.toString());
-            }
-            blocks.add(newBlock);// 找到一个可行的 Block，加入到结果中
-            return;
-        }
-
-        // 尝试将当前作业加入当前 Block
-        if (totalTime + instance.p[index] <= 50) {
-            currentBlock.add(index, instance);
-            backtrack(instance, index + 1, totalTime + instance.p[index], currentBlock, blocks);
-            int jobIndex = currentBlock.get(currentBlock.size() - 1);
-            currentBlock.remove(currentBlock.size() - 1);
-            currentBlock.processingTime -= instance.p[jobIndex];
-            //currentBlock.remove(Integer.valueOf(jobIndex), instance);
-            //currentBlock.remove(currentBlock.size() - 1); // 回溯，移除最后一个作业
-
-        }
-
-        // 不将当前作业加入当前 Block，继续尝试下一个作业
-        backtrack(instance, index + 1, totalTime, currentBlock, blocks);
-    }
 }
@@ -0,0 +1,184 @@
+package algo;
+
+import gurobi.GRBException;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * enumerate the maximal blocks of an instance (no other job fits into them), which are enough for the LP of the root:
+ * a block is dominated by any maximal block containing it.
+ * The blocks are partitioned by their first job and the partitions are searched in parallel,
+ * they are streamed to the caller in chunks through a small bounded queue per partition, so only a few chunks
+ * are in memory at once
+ */
+public class BlockEnumerator {
+    public static final int CHUNK_SIZE = 1024;
+
+    Instance instance;
+    int nJobs;
+    int T;
+    int[] p;
+    int[] suffixP; // suffixP[i] = p[i] + ... + p[n - 1]
+    int[] prefixMinP; // prefixMinP[i] = min(p[0], ..., p[i - 1])
+
+    int chunkSize;
+    int nThreads;
+    long numOfBlocks;
+
+    private static final ArrayList<Block> END = new ArrayList<>(); // the last chunk of a partition
+    private static final int QUEUE_SIZE = 2; // the chunks of a partition waiting for the caller
+
+    public interface BlockSink {
+        void accept(ArrayList<Block> blocks) throws GRBException;
+    }
+
+    public BlockEnumerator(Instance instance, int chunkSize, int nThreads) {
+        this.instance = instance;
+        this.nJobs = instance.nJobs;
+        this.T = instance.T;
+        this.p = instance.p;
+        this.chunkSize = chunkSize;
+        this.nThreads = Math.max(1, nThreads);
+        this.suffixP = new int[nJobs + 1];
+        for (int i = nJobs - 1; i >= 0; i--) {
+            suffixP[i] = suffixP[i + 1] + p[i];
+        }
+        this.prefixMinP = new int[nJobs + 1];
+        prefixMinP[0] = Integer.MAX_VALUE;
+        for (int i = 0; i < nJobs; i++) {
+            prefixMinP[i + 1] = Math.min(prefixMinP[i], p[i]);
+        }
+    }
+
+    /**
+     * the chunks are given to sink in the calling thread, in the order of the first jobs whatever nThreads,
+     * the enumeration stops once maxNumOfBlocks blocks have been given, so a truncated enumeration is reproducible.
+     * The partitions start in the order of their first jobs and the caller drains them in the same order:
+     * the partition it waits for is running or starts once the earlier ones, already drained, are done.
+     * An exception or error of a partition is thrown here
+     *
+     * @return the number of blocks given to sink
+     */
+    public long enumerate(BlockSink sink, long maxNumOfBlocks) throws GRBException {
+        numOfBlocks = 0;
+        if (nJobs == 0) {
+            return 0;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        try {
+            ArrayList<BlockingQueue<ArrayList<Block>>> queues = new ArrayList<>(nJobs);
+            for (int first = 0; first < nJobs; first++) {
+                BlockingQueue<ArrayList<Block>> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+                queues.add(queue);
+                Partition partition = new Partition(first, queue, failure);
+                pool.execute(partition::run);
+            }
+            for (int first = 0; first < nJobs && numOfBlocks < maxNumOfBlocks && failure.get() == null; first++) {
+                BlockingQueue<ArrayList<Block>> queue = queues.get(first);
+                while (numOfBlocks < maxNumOfBlocks) {
+                    ArrayList<Block> chunk = queue.take();
+                    if (chunk == END) {
+                        break;
+                    }
+                    if (numOfBlocks + chunk.size() > maxNumOfBlocks) {
+                        chunk = new ArrayList<>(chunk.subList(0, (int) (maxNumOfBlocks - numOfBlocks)));
+                    }
+                    numOfBlocks += chunk.size();
+                    sink.accept(chunk);
+                }
+            }
+            if (failure.get() instanceof Error) {
+                throw (Error) failure.get();
+            }
+            if (failure.get() != null) {
+                throw new RuntimeException(failure.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow(); // also stops the partitions blocked on a full queue
+        }
+        return numOfBlocks;
+    }
+
+    /**
+     * the maximal blocks whose first job is first, depth first search in index order
+     */
+    private class Partition {
+        int first;
+        BlockingQueue<ArrayList<Block>> queue;
+        AtomicReference<Throwable> failure;
+        int[] jobs;
+        int size;
+        ArrayList<Block> buffer;
+
+        Partition(int first, BlockingQueue<ArrayList<Block>> queue, AtomicReference<Throwable> failure) {
+            this.first = first;
+            this.queue = queue;
+            this.failure = failure;
+            this.jobs = new int[nJobs];
+            this.buffer = new ArrayList<>(chunkSize);
+        }
+
+        void run() {
+            try {
+                if (p[first] <= T) {
+                    jobs[size++] = first;
+                    search(first + 1, p[first], prefixMinP[first]);
+                }
+                if (!buffer.isEmpty()) {
+                    queue.put(buffer);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e); // OutOfMemoryError for example
+            } finally {
+                // even after a failure, the caller waiting for this partition wakes up
+                try {
+                    queue.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * @param minSkipped the min processing time of the jobs before index which are not in the block
+         */
+        private void search(int index, int time, int minSkipped) throws InterruptedException {
+            int residual = T - time;
+            if (residual - suffixP[index] >= minSkipped) {
+                return; // a skipped job fits even if all the remaining jobs are added
+            }
+            if (index == nJobs) {
+                emit();
+                return;
+            }
+            if (p[index] <= residual) {
+                jobs[size++] = index;
+                search(index + 1, time + p[index], minSkipped);
+                size--;
+            }
+            search(index + 1, time, Math.min(minSkipped, p[index]));
+        }
+
+        private void emit() throws InterruptedException {
+            Block block = new Block();
+            for (int k = 0; k < size; k++) {
+                block.add(jobs[k], instance);
+            }
+            buffer.add(block);
+            if (buffer.size() == chunkSize) {
+                queue.put(buffer);
+                buffer = new ArrayList<>(chunkSize);
+            }
+        }
+    }
+}
@@ -17,6 +17,7 @@ public class BranchAndBound {
     public boolean tightenTBound; // during the process of computation, The RHS of \sum_j p_jy_j will be tightened
 
     public boolean useHeuristics;
+    public boolean useEnumeration; // close the nodes with a small gap by column enumeration + IP
 
     public boolean feasible;
     public Solution incumbentSol;
@@ -34,16 +35,24 @@ public class BranchAndBound {
     double timeOnRMP;
     double timeOnPP;
     double timeOnHeuristic;
+    double timeOnEnumeration;
 
     int cntRMPCall;
     int cntPPCall;
     int cntHeuristicCall;
+    int cntMisprice;
+    long numOfRMPIterations;
+    int cntFarkasPricing;
+    int[] cntPPWins = new int[PricingPortfolio.NUM_OF_ENGINES]; // pricing portfolio: the calls won by each engine
 
     int numOfNodes;
     int numOfNodesPrunedByBound;
     int numOfNodesPrunedByOptimal;
     int numOfNodesPrunedByInfeasible;
+    int numOfNodesClosedByEnumeration;
+    int numOfNodesStoppedByLagrangianBound; // column generation stopped before convergence
     int numOfNodesRemained;
+    int numOfNodesUnresolved; // column generation gave neither an LP solution nor a proof of infeasibility
     int numOfNodesSolved;
 
     double optimalGap = 1 - Base.EPS;
@@ -64,6 +73,7 @@ public class BranchAndBound {
         this.branchOnPairs = Param.branchOnPairs;
         this.tightenTBound = Param.tightenTBound;
         this.useHeuristics = Param.useHeuristics;
+        this.useEnumeration = Param.enumerationFlag;
         this.instance = instance;
         this.nJobs = instance.nJobs;
         this.globalLB = 0; // globalLB will increase during the solving the tree
@@ -115,7 +125,16 @@ public class BranchAndBound {
             if (isPrunedByBound(node)) {
                 continue;
             }
-            solve(node);
+            if (!solve(node) && node.status != NodeStatus.INFEASIBLE) {
+                // column generation ended without an LP solution or a proof of infeasibility (time out, or RMP
+                // neither optimal nor proven infeasible): the node keeps the bound of its parent and the search stops
+                numOfNodesUnresolved++;
+                tree.offer(node);
+                if (Param.debug) {
+                    System.out.println("node " + node.nodeID + " is not resolved by column generation, stop");
+                }
+                break;
+            }
 
             String branchInfo = "=".repeat(30) + "solved node: " + node.nodeID + "=".repeat(30) + "\n";
             branchInfo += "=".repeat(30) + "The branching information" + "=".repeat(30) + "\n";
@@ -192,6 +211,13 @@ public class BranchAndBound {
                 }
             }
 
+            if (useEnumeration && closeByEnumeration(node)) {
+                if (node.parent == null) {
+                    rootUB = globalUB;
+                }
+                continue;
+            }
+
             node.ubNumBlocks = Math.min(incumbentSol.size() - 1, node.ubNumBlocks);
             // branch for fractional case
             ArrayList<Node> children = branch(node);
@@ -306,6 +332,26 @@ public class BranchAndBound {
         return new Node(++numOfNodes, null, nJobs, lbNumOfBlocks, ubNumOfBlocks, andItems, orItems, removedItems);
     }
 
+    /**
+     * @return true if the node is closed by column enumeration, the incumbent is updated by its best solution
+     */
+    private boolean closeByEnumeration(Node node) throws GRBException {
+        Solution solution = columnGeneration.closeByEnumeration(node, globalUB);
+        timeOnEnumeration += node.timeOnEnumeration;
+        if (solution == null) {
+            return false;
+        }
+        numOfNodesClosedByEnumeration++;
+        if (!solution.isEmpty() && solution.makespan + Base.EPS < globalUB) {
+            incumbentSol = solution;
+            globalUB = solution.makespan;
+            if (Param.debug) {
+                System.out.println("globalUB has been updated by enumeration: " + globalUB + " based on node: " + node.nodeID);
+            }
+        }
+        return true;
+    }
+
     private boolean isPrunedByBound(Node node) {
         if (node.lb + Base.EPS >= globalUB) {
             numOfNodesPrunedByBound++;
@@ -379,9 +425,11 @@ public class BranchAndBound {
      * 使用列生成算法对于node的lp进行求解。
      *
      * @param node
+     * @return false if column generation did not solve the LP of node, then node.status is INFEASIBLE
+     * if the node is proven infeasible, otherwise it is left UNSOLVED and node.lpSol must not be used
      * @throws GRBException
      */
-    public void solve(Node node) throws GRBException {
+    public boolean solve(Node node) throws GRBException {
         String startStr = "=".repeat(30) + "solve node " + node.nodeID + " start" +
                 "=".repeat(30);
         if (Param.debug) {
@@ -389,6 +437,7 @@ public class BranchAndBound {
         }
 
         long s0 = System.currentTimeMillis();
+        boolean solved;
 
         if (node.parent == null) { // root node
             ColumnPool initialPool = generateInitialPool();
@@ -398,11 +447,15 @@ public class BranchAndBound {
             }
  */
             columnGeneration.master.addColumnsWithoutCheck(initialPool);
-            columnGeneration.solve(node, timeLimit);
+            if (Param.enumerateRootColumns) {
+                BlockEnumerator enumerator = new BlockEnumerator(instance, BlockEnumerator.CHUNK_SIZE, Param.nThreads);
+                enumerator.enumerate(columnGeneration.master::addColumnsWithoutCheck, Param.maxNumOfRootColumns);
+            }
+            solved = columnGeneration.solve(node, globalUB, timeLimit);
             timeOnRoot += Base.getTimeCost(s0);
             rootLB = node.lb;
         } else {
-            columnGeneration.solve(node, timeLimit);
+            solved = columnGeneration.solve(node, globalUB, timeLimit);
         }
 
         node.timeCost = Base.getTimeCost(s0);
@@ -412,6 +465,15 @@ public class BranchAndBound {
         timeOnPP += node.timeOnPP;
         cntRMPCall += node.cntRMPCall;
         cntPPCall += node.cntPPCall;
+        for (int k = 0; k < cntPPWins.length; k++) {
+            cntPPWins[k] += node.cntPPWins[k];
+        }
+        cntMisprice += node.cntMisprice;
+        numOfRMPIterations += node.numOfRMPIterations;
+        cntFarkasPricing += node.cntFarkasPricing;
+        if (node.stoppedByLagrangianBound) {
+            numOfNodesStoppedByLagrangianBound++;
+        }
         numOfNodesSolved++;
 
 
@@ -458,7 +520,7 @@ public class BranchAndBound {
         //         node.status = NodeStatus.PrunedByBound;
         //     }
         // }
-
+        return solved;
     }
 
     /**
@@ -570,6 +632,14 @@ public class BranchAndBound {
                 + columnGeneration.pricing.numOfLabels + ","
                 + columnGeneration.pricing.numOfLabelsPrunedByLb + ","
                 + columnGeneration.pricing.numOfLabelsDominated + ","
+                + columnGeneration.pricing.jobOrder + ","
+                + Param.stabilization + ","
+                + cntMisprice + ","
+                + Param.warmStartBasisFlag + ","
+                + numOfRMPIterations + ","
+                + columnGeneration.master.numOfBasisRestores + ","
+                + Param.farkasPricingFlag + ","
+                + cntFarkasPricing + ","
                 ;
         return str;
     }
@@ -0,0 +1,14 @@
+package algo;
+
+/**
+ * the constraint on the columns added by the branching of a node, on top of those of its ancestors:
+ * EXCLUDE: y_a = 1, TOGETHER / APART: the jobs a and b in the same block or not,
+ * ANY: a root with branching information, checked by isValid
+ */
+enum ColumnBranch {
+    NONE,
+    EXCLUDE,
+    TOGETHER,
+    APART,
+    ANY
+}
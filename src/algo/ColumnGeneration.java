@@ -4,6 +4,8 @@ import comn.Base;
 import comn.Param;
 import gurobi.GRBException;
 
+import java.util.ArrayList;
+
 import javax.crypto.spec.OAEPParameterSpec;
 
 
@@ -16,10 +18,41 @@ public class ColumnGeneration {
     Master master;
     // Pricing pricing;
     PricingLabelSetting pricing;
+    PricingDP pricingDP; // the nodes without conflict jobs if Param.dpPricingFlag: a plain knapsack
+    PricingPortfolio portfolio; // the nodes with conflict jobs if Param.pricingPortfolioFlag
+    PricingEngine engine; // the pricing engine of the current node
     double[] duals;
 
     long start;
     long timeLimit;
+    boolean proven; // the LP value rounded up is a bound of the node
+    boolean converged; // the last round of pricing was exhaustive, the duals of RMP are optimal for the node
+    double globalUB;
+    double lagrangianBound; // the best Lagrangian bound of the node, over the exhaustive rounds of pricing
+
+    boolean poolPricing;
+
+    /**
+     * dual stabilization against the oscillation of the RMP duals
+     * SMOOTHING (Wentges): price at alpha * center + (1 - alpha) * duals, the center is the previous separation point.
+     * A misprice (no new block is negative under the RMP duals) prices again closer to the duals,
+     * alpha_k = max(0, 1 - k * (1 - alpha)), so the last try is alpha = 0 and the termination is exact.
+     * alpha grows by ALPHA_STEP after a round without misprice and shrinks by ALPHA_STEP otherwise.
+     * BOX (du Merle): the cover duals are penalized outside a box around the duals of the previous round,
+     * the box is removed before column generation stops, so the final LP is the plain RMP
+     */
+    enum Stabilization {
+        NONE, SMOOTHING, BOX
+    }
+
+    Stabilization stabilization;
+    double alpha;
+    double[] center; // null at the first round of a node
+    double boxWidth;
+    double boxSlack;
+    boolean boxRemoved; // the box has been removed in the current node
+    static final double ALPHA_STEP = 0.1;
+    static final double MAX_ALPHA = 0.9;
 
 
     public ColumnGeneration(Instance instance) throws GRBException {
@@ -27,21 +60,47 @@ public class ColumnGeneration {
         this.nJobs = instance.nJobs;
         this.master = new Master(instance);
         this.pricing = new PricingLabelSetting(instance);
+        this.pricingDP = new PricingDP(instance);
+        if (Param.pricingPortfolioFlag) {
+            this.portfolio = new PricingPortfolio(pricing, new Pricing(instance));
+        }
         this.duals = new double[nJobs + 3];
+        // the archived columns of column aging only come back through pool pricing
+        this.poolPricing = Param.poolPricingFlag || Param.maxColumnAge > 0;
+        this.stabilization = Param.stabilization == null ? Stabilization.NONE : Stabilization.valueOf(Param.stabilization);
+        this.alpha = Param.smoothingAlpha;
+        this.boxWidth = Param.boxWidth;
+        this.boxSlack = Param.boxSlack;
     }
 
 
-    public boolean solve(Node node, long timeLimit) throws GRBException {
+    public boolean solve(Node node, double globalUB, long timeLimit) throws GRBException {
         // String str = "-".repeat(30) + "Column Generation to solve node :"+node.nodeID + "-".repeat(30) + "\n";
         // System.out.println(str);
+        this.start = System.currentTimeMillis();
+        this.timeLimit = timeLimit;
+        this.globalUB = globalUB;
+        this.lagrangianBound = -Double.MAX_VALUE;
+        this.converged = false;
+        master.removeDualBox(); // left by a node stopped on its Lagrangian bound
         master.set(node);
-        pricing.set(node);
-        if (!master.solve()) {
+        if (Param.dpPricingFlag && !node.hasConflicts) {
+            engine = pricingDP;
+        } else {
+            engine = portfolio != null ? portfolio : pricing;
+        }
+        engine.set(node);
+        engine.resetBudget();
+        center = null;
+        boxRemoved = false;
+        boolean feasible = master.solve();
+        while (!feasible && priceFarkas(node)) {
+            feasible = master.solve();
+        }
+        if (!feasible) {
             return false;
         }
 
-        duals = master.getDualValues();
-        pricing.solve(duals, timeLimit);
         // System.out.println("initial pricing problem has been solved");
         if (Param.debug) {
             // Column optimal_instance50 = new Column();
@@ -62,9 +121,7 @@ public class ColumnGeneration {
                 System.out.println("=".repeat(30) + "solve root node" + "=".repeat(30));
             }
         }
-        while (pricing.findNewBlocks()) {
-            // System.out.println(pricing.newColumns.toString());
-            master.addColumns(pricing.newBlocks);
+        while (price()) {
             master.solve();
             /**
              * print the iteration information of root node
@@ -76,10 +133,12 @@ public class ColumnGeneration {
                             "  time = " + String.format("%.3f", 0.001 * (System.currentTimeMillis() - start)));
                 }
             }
-
-            duals = master.getDualValues();
-            pricing.solve(duals, timeLimit);
+            if (Param.lagrangianBoundFlag && isClosedByLagrangianBound()) {
+                node.stoppedByLagrangianBound = true;
+                break;
+            }
         }
+        node.lagrangianBound = lagrangianBound;
 
 
         /**
@@ -88,7 +147,14 @@ public class ColumnGeneration {
          */
         if (master.isPrimalModelFeasible()) {
             node.lpSol = master.getLPSol();
-            node.lb = Base.ceilToInt(node.lpSol.objVal);
+            if (Param.warmStartBasisFlag) {
+                master.saveBasis(node);
+            }
+            if (proven) {
+                node.lb = Base.ceilToInt(node.lpSol.objVal);
+            } else { // otherwise keep the bound inherited from the parent, unless the Lagrangian bound is better
+                node.lb = Math.max(node.lb, Base.ceilToInt(lagrangianBound));
+            }
             if (Param.debug) {
                 node.checkLPSolution();
             }
@@ -117,6 +183,192 @@ public class ColumnGeneration {
 
     }
 
+    /**
+     * pool pricing: price the inactive columns of the pool first, the pricing engine only runs if none of them is negative
+     * a round without columns only stops column generation if it is exhaustive,
+     * otherwise the budget of the engine is doubled and the round repeated
+     *
+     * @return true if some columns are activated or added to RMP
+     */
+    private boolean price() throws GRBException {
+        duals = master.getDualValues();
+        if (poolPricing && master.activateNegativeColumns(duals, Param.maxNumOfPoolColumns) > 0) {
+            return true;
+        }
+        proven = false;
+        if (stabilization == Stabilization.SMOOTHING && center != null && priceSmoothed()) {
+            return true;
+        }
+        if (stabilization == Stabilization.BOX && !boxRemoved) {
+            return priceInBox();
+        }
+        if (!solveEngine(duals)) {
+            proven = converged = engine.isExhaustive();
+            return false;
+        }
+        // System.out.println(pricing.newColumns.toString());
+        master.addColumns(engine.getNewBlocks());
+        center = duals;
+        return true;
+    }
+
+    /**
+     * RMP without artificial variables is infeasible: price the blocks under its Farkas ray, those which may repair it.
+     * The cost T + t of a block is cancelled through the entry of constraint3, so every engine prices the Farkas
+     * reduced cost as a usual one. The node is infeasible once an exhaustive round finds no block
+     *
+     * @return true if some columns are activated or added to RMP
+     */
+    private boolean priceFarkas(Node node) throws GRBException {
+        double[] ray = master.getFarkasDuals();
+        if (ray == null) {
+            return false;
+        }
+        ray[nJobs + 1] += instance.T + instance.t;
+        node.cntFarkasPricing++;
+        if (poolPricing && master.activateNegativeColumns(ray, Param.maxNumOfPoolColumns) > 0) {
+            return true;
+        }
+        engine.solve(ray, timeLimit);
+        while (!engine.findNewBlocks() && !engine.isExhaustive() && !timeisOut()) {
+            engine.extendBudget();
+            engine.solve(ray, timeLimit);
+        }
+        if (!engine.findNewBlocks()) {
+            if (engine.isExhaustive()) {
+                node.status = NodeStatus.INFEASIBLE;
+            }
+            return false;
+        }
+        master.addColumns(engine.getNewBlocks());
+        return true;
+    }
+
+    /**
+     * @return true if the engine finds blocks with negative reduced costs under values
+     */
+    private boolean solveEngine(double[] values) throws GRBException {
+        engine.solve(values, timeLimit);
+        while (!engine.findNewBlocks() && !engine.isExhaustive() && !timeisOut()) {
+            engine.extendBudget();
+            engine.solve(values, timeLimit);
+        }
+        if (Param.lagrangianBoundFlag && engine.isExhaustive()) {
+            lagrangianBound = Math.max(lagrangianBound, master.lagrangianBound(values, engine.getMinReducedCost()));
+        }
+        return engine.findNewBlocks();
+    }
+
+    /**
+     * the objective is integral, so column generation stops once the Lagrangian bound rounds up to
+     * the objective of RMP (the LP value of the node rounds up to the same), or up to globalUB (the node is pruned).
+     * The objective of RMP is only an upper bound of the node without the box of the stabilization
+     */
+    private boolean isClosedByLagrangianBound() throws GRBException {
+        int bound = Base.ceilToInt(lagrangianBound);
+        if (bound + Base.EPS >= globalUB) {
+            return true;
+        }
+        if (!master.boxOn && bound >= Base.ceilToInt(master.getObjValue())) {
+            proven = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * the misprice sequence of smoothing, down to alpha_k > 0, the caller prices at the duals if it fails
+     *
+     * @return true if some blocks are negative under the RMP duals, they are added to RMP
+     */
+    private boolean priceSmoothed() throws GRBException {
+        for (int k = 1; ; k++) {
+            double a = Math.max(0, 1 - k * (1 - alpha));
+            if (a <= 0) {
+                alpha = Math.max(0, alpha - ALPHA_STEP);
+                return false;
+            }
+            double[] separation = new double[duals.length];
+            for (int i = 0; i < duals.length; i++) {
+                separation[i] = a * center[i] + (1 - a) * duals[i];
+            }
+            if (solveEngine(separation)) {
+                ArrayList<Block> blocks = new ArrayList<>();
+                for (Block block : engine.getNewBlocks()) {
+                    if (block.calculateReducedCost(instance, duals) + Base.EPS < 0) {
+                        blocks.add(block);
+                    }
+                }
+                if (!blocks.isEmpty()) {
+                    master.addColumns(blocks);
+                    center = separation;
+                    alpha = k == 1 ? Math.min(MAX_ALPHA, alpha + ALPHA_STEP) : Math.max(0, alpha - ALPHA_STEP);
+                    return true;
+                }
+            }
+            master.node.cntMisprice++;
+            if (timeisOut()) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * the box is centered on the duals of each round, it is removed when a round finds no column,
+     * and column generation goes on without it
+     *
+     * @return true if some columns are added to RMP, or the box is removed
+     */
+    private boolean priceInBox() throws GRBException {
+        if (solveEngine(duals)) {
+            master.addColumns(engine.getNewBlocks());
+            master.setDualBox(duals, boxWidth, boxSlack);
+            return true;
+        }
+        if (master.boxOn) {
+            master.removeDualBox();
+            boxRemoved = true; // the rest of the node is priced without box
+            return true;
+        }
+        proven = converged = engine.isExhaustive();
+        return false;
+    }
+
+    /**
+     * every block of a solution of objective <= globalUB - 1 has a reduced cost
+     * <= globalUB - 1 - objVal under the final duals of the node (if column generation converged). If this gap is small, all of these blocks
+     * are enumerated and the IP of the node restricted to them closes the node without branching
+     *
+     * @return null if the node is not closed, otherwise its best solution better than globalUB (empty if none)
+     */
+    public Solution closeByEnumeration(Node node, double globalUB) throws GRBException {
+        if (!converged || node.lpSol == null) {
+            return null;
+        }
+        double threshold = globalUB - 1 - node.lpSol.objVal;
+        if (threshold < 0) {
+            return new Solution();
+        }
+        if (threshold > Param.enumerationMaxGap) {
+            return null;
+        }
+        long s0 = System.currentTimeMillis();
+        if (portfolio != null) {
+            portfolio.awaitEngines(); // the label setting may still run on the last duals
+        }
+        pricing.set(node);
+        ArrayList<Block> blocks = pricing.enumerate(duals, threshold, Param.enumerationMaxColumns);
+        Solution solution = null;
+        if (blocks != null) {
+            double timeLeft = timeLimit > 0 ? timeLimit - 0.001 * (System.currentTimeMillis() - start) : 0;
+            if (timeLimit <= 0 || timeLeft > 0) {
+                solution = master.solveIntegerProgram(blocks, globalUB - 0.5, timeLeft);
+            }
+        }
+        node.timeOnEnumeration += Base.getTimeCost(s0);
+        return solution;
+    }
+
     private boolean timeisOut() {
         return (timeLimit > 0 && 0.001 * (System.currentTimeMillis() - start) > timeLimit);
 
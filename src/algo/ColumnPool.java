@@ -1,6 +1,58 @@
 package algo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
+/**
+ * the columns of RMP
+ * the jobs of column k are also packed in words [k * nWords, (k + 1) * nWords) of masks,
+ * so that the reduced costs of the whole pool are computed without touching the blocks
+ */
 public class ColumnPool extends ArrayList<Block> {
+    int nWords;
+    long[] masks;
+
+    public ColumnPool() {
+        this(0);
+    }
+
+    public ColumnPool(int nJobs) {
+        this.nWords = (nJobs + 63) >>> 6;
+        this.masks = new long[16 * nWords];
+    }
+
+    @Override
+    public boolean add(Block block) {
+        if (nWords > 0) {
+            int offset = size() * nWords;
+            if (offset + nWords > masks.length) {
+                masks = Arrays.copyOf(masks, 2 * Math.max(masks.length, nWords));
+            }
+            Arrays.fill(masks, offset, offset + nWords, 0L);
+            for (int job : block) {
+                masks[offset + (job >>> 6)] |= 1L << job;
+            }
+        }
+        return super.add(block);
+    }
+
+    boolean contains(int k, int job) {
+        return (masks[k * nWords + (job >>> 6)] & (1L << job)) != 0;
+    }
+
+    /**
+     * @return the sum of duals over the jobs of column k
+     */
+    double dualValue(int k, double[] duals) {
+        double value = 0;
+        int offset = k * nWords;
+        for (int w = 0; w < nWords; w++) {
+            long word = masks[offset + w];
+            while (word != 0) {
+                value += duals[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return value;
+    }
 }
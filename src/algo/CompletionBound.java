@@ -0,0 +1,126 @@
+package algo;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * upper bounds on the dual value a label can still collect with its next jobs
+ * (1) continuous knapsack relaxation over the residual capacity
+ * the items are sorted once per dual vector, evaluating the bound of a label
+ * only walks the sorted items and tests the label's nextJobs words, no allocation
+ * (2) 0/1 knapsack over all the items after (forward) / before (backward) the label's current job,
+ * conflicts are ignored, the DP tables are built once per dual vector and looked up in O(1)
+ */
+class CompletionBound {
+    int nJobs;
+    int T;
+    int[] weights;
+    double[] values;
+
+    int[] order; // the items with positive value, in DESC order of values[j] / weights[j]
+    int size;
+    Integer[] sortBuffer;
+
+    double[] suffix; // suffix[k * (T + 1) + c]: max value of the items in [k, n) within capacity c
+    double[] prefix; // prefix[k * (T + 1) + c]: max value of the items in [0, k) within capacity c
+
+    CompletionBound(int nJobs, int T) {
+        this.nJobs = nJobs;
+        this.T = T;
+        this.order = new int[nJobs];
+        this.sortBuffer = new Integer[nJobs];
+        this.suffix = new double[(nJobs + 1) * (T + 1)];
+        this.prefix = new double[(nJobs + 1) * (T + 1)];
+    }
+
+    /**
+     * sort the items and build the DP tables for a new dual vector
+     *
+     * @param candidates the items which can be packed at all
+     */
+    void set(int[] weights, double[] values, boolean[] candidates) {
+        this.weights = weights;
+        this.values = values;
+        size = 0;
+        for (int j = 0; j < nJobs; j++) {
+            if (candidates[j] && values[j] > 0 && weights[j] > 0) {
+                sortBuffer[size++] = j;
+            }
+        }
+        Arrays.sort(sortBuffer, 0, size, Comparator.comparingDouble(j -> -(values[j] / weights[j])));
+        for (int k = 0; k < size; k++) {
+            order[k] = sortBuffer[k];
+        }
+        buildTables(candidates);
+    }
+
+    private void buildTables(boolean[] candidates) {
+        int width = T + 1;
+        Arrays.fill(suffix, nJobs * width, (nJobs + 1) * width, 0);
+        for (int k = nJobs - 1; k >= 0; k--) {
+            int row = k * width;
+            System.arraycopy(suffix, row + width, suffix, row, width);
+            if (candidates[k] && values[k] > 0 && weights[k] <= T) {
+                int w = weights[k];
+                for (int c = w; c <= T; c++) {
+                    suffix[row + c] = Math.max(suffix[row + c], suffix[row + width + c - w] + values[k]);
+                }
+            }
+        }
+        Arrays.fill(prefix, 0, width, 0);
+        for (int k = 1; k <= nJobs; k++) {
+            int row = k * width;
+            System.arraycopy(prefix, row - width, prefix, row, width);
+            int j = k - 1;
+            if (candidates[j] && values[j] > 0 && weights[j] <= T) {
+                int w = weights[j];
+                for (int c = w; c <= T; c++) {
+                    prefix[row + c] = Math.max(prefix[row + c], prefix[row - width + c - w] + values[j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param forward true if the label can only be extended by the jobs after curJob
+     * @return the max value of the 0/1 knapsack over the jobs after/before curJob
+     */
+    double dpBound(int curJob, int capacity, boolean forward) {
+        if (capacity <= 0) {
+            return 0;
+        }
+        int c = Math.min(capacity, T);
+        if (forward) {
+            return suffix[(curJob + 1) * (T + 1) + c];
+        }
+        return prefix[curJob * (T + 1) + c];
+    }
+
+    /**
+     * the bits of nextJobs are in job order, not in ratio order, so the set bits are not walked word by word:
+     * each item of order costs one bit test, and the walk stops once the residual capacity is filled
+     *
+     * @return the max value of the continuous knapsack over the next jobs of label
+     */
+    double continuousBound(LabelPool pool, int label, int capacity) {
+        long[] next = pool.nextJobs;
+        int offset = label * pool.nWords;
+        double leftSpace = capacity;
+        double totalValue = 0;
+        for (int k = 0; k < size && leftSpace > 0; k++) {
+            int j = order[k];
+            if ((next[offset + (j >>> 6)] & (1L << j)) == 0) {
+                continue;
+            }
+            // take the largest possible value
+            if (leftSpace - weights[j] >= 0) {
+                leftSpace -= weights[j];
+                totalValue += values[j];
+            } else {
+                totalValue += leftSpace / weights[j] * values[j];
+                break;
+            }
+        }
+        return totalValue;
+    }
+}
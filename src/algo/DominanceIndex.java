@@ -0,0 +1,193 @@
+package algo;
+
+import comn.Base;
+
+import java.util.Arrays;
+
+/**
+ * the non-dominated labels of one search direction
+ * labels ending with job j are bucketed by their processing time t in [0, T],
+ * so that a new label is only compared with the buckets t' <= t (labels which may dominate it)
+ * and t' >= t (labels which it may dominate). Each bucket keeps a bound on the min/max reduced cost
+ * of its labels, the buckets which can not contain a dominating/dominated label are skipped.
+ */
+class DominanceIndex {
+    LabelPool pool;
+    int nJobs;
+    int T;
+    double[] values; // value of each next job which is given up when it can not be added anymore
+
+    int[][] buckets; // buckets[j * (T + 1) + t]
+    int[] sizes;
+    double[] minCost;
+    double[] maxCost;
+    int[] jobSizes; // the number of labels ending with job j
+    int[] touched; // the non-empty buckets, to clear the index in O(#buckets used)
+    int numOfTouched;
+
+    DominanceIndex(LabelPool pool, int nJobs, int T) {
+        this.pool = pool;
+        this.nJobs = nJobs;
+        this.T = T;
+        this.buckets = new int[nJobs * (T + 1)][];
+        this.sizes = new int[nJobs * (T + 1)];
+        this.minCost = new double[nJobs * (T + 1)];
+        this.maxCost = new double[nJobs * (T + 1)];
+        this.jobSizes = new int[nJobs];
+        this.touched = new int[64];
+    }
+
+    void clear(double[] values) {
+        this.values = values;
+        for (int k = 0; k < numOfTouched; k++) {
+            sizes[touched[k]] = 0;
+        }
+        numOfTouched = 0;
+        Arrays.fill(jobSizes, 0);
+    }
+
+    void add(int label) {
+        int job = pool.curJob[label];
+        int b = job * (T + 1) + pool.processingTime[label];
+        double cost = pool.reducedCost[label];
+        int size = sizes[b];
+        if (size == 0) {
+            if (buckets[b] == null) {
+                buckets[b] = new int[4];
+            }
+            if (numOfTouched == touched.length) {
+                touched = Arrays.copyOf(touched, 2 * numOfTouched);
+            }
+            touched[numOfTouched++] = b;
+            minCost[b] = cost;
+            maxCost[b] = cost;
+        } else {
+            if (size == buckets[b].length) {
+                buckets[b] = Arrays.copyOf(buckets[b], 2 * size);
+            }
+            minCost[b] = Math.min(minCost[b], cost);
+            maxCost[b] = Math.max(maxCost[b], cost);
+        }
+        buckets[b][size] = label;
+        sizes[b] = size + 1;
+        jobSizes[job]++;
+    }
+
+    /**
+     * @return true if the label is dominated by a stored label with the same current job
+     */
+    boolean isDominated(int label) {
+        int job = pool.curJob[label];
+        int base = job * (T + 1);
+        double cost = pool.reducedCost[label];
+        for (int t = 0; t <= pool.processingTime[label]; t++) {
+            int b = base + t;
+            if (sizes[b] == 0 || minCost[b] > cost + Base.EPS) {
+                continue;
+            }
+            int[] bucket = buckets[b];
+            for (int h = 0; h < sizes[b]; h++) {
+                if (dominates(bucket[h], label)) {
+                    pool.dominated[label] = true;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * remove the stored labels dominated by label and mark them dead, the queue skips them lazily
+     *
+     * @return the number of removed labels
+     */
+    int removeDominatedBy(int label) {
+        int job = pool.curJob[label];
+        int base = job * (T + 1);
+        double cost = pool.reducedCost[label];
+        int removed = 0;
+        for (int t = pool.processingTime[label]; t <= T; t++) {
+            int b = base + t;
+            if (sizes[b] == 0 || maxCost[b] < cost - Base.EPS) {
+                continue;
+            }
+            int[] bucket = buckets[b];
+            int h = 0;
+            while (h < sizes[b]) {
+                int other = bucket[h];
+                if (dominates(label, other)) {
+                    pool.dominated[other] = true;
+                    bucket[h] = bucket[--sizes[b]];
+                    jobSizes[job]--;
+                    removed++;
+                } else {
+                    h++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * whether l1 dominates l2 (both end with the same job)
+     * l1.processingTime <= l2.processingTime and
+     * l1.reducedCost + sum of values of (l2.nextJobs \ l1.nextJobs) <= l2.reducedCost,
+     * at least one of them strictly
+     */
+    boolean dominates(int l1, int l2) {
+        int time1 = pool.processingTime[l1];
+        int time2 = pool.processingTime[l2];
+        double cost1 = pool.reducedCost[l1];
+        double cost2 = pool.reducedCost[l2];
+        if (time1 > time2 || cost1 > cost2 + Base.EPS) {
+            return false;
+        }
+        double sum = 0;
+        long[] next = pool.nextJobs;
+        int offset1 = l1 * pool.nWords;
+        int offset2 = l2 * pool.nWords;
+        for (int w = 0; w < pool.nWords; w++) {
+            long word = next[offset2 + w] & ~next[offset1 + w];
+            while (word != 0) {
+                sum += values[(w << 6) + Long.numberOfTrailingZeros(word)];
+                if (cost1 + sum > cost2 + Base.EPS) {
+                    return false;
+                }
+                word &= word - 1;
+            }
+        }
+        return time1 < time2 || cost1 + sum < cost2 - Base.EPS;
+    }
+
+    /**
+     * @return the number of stored labels ending with job whose processing time is time
+     */
+    int bucketSize(int job, int time) {
+        return sizes[job * (T + 1) + time];
+    }
+
+    /**
+     * @return the number of stored labels ending with job
+     */
+    int size(int job) {
+        return jobSizes[job];
+    }
+
+    /**
+     * copy the stored labels ending with job into labels[from, from + size(job))
+     *
+     * @return the number of copied labels
+     */
+    int labels(int job, int[] labels, int from) {
+        int cnt = from;
+        int base = job * (T + 1);
+        for (int t = 0; t <= T; t++) {
+            int b = base + t;
+            if (sizes[b] > 0) {
+                System.arraycopy(buckets[b], 0, labels, cnt, sizes[b]);
+                cnt += sizes[b];
+            }
+        }
+        return cnt - from;
+    }
+}
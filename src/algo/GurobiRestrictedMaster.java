@@ -0,0 +1,295 @@
+package algo;
+
+import comn.Param;
+import gurobi.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * the RMP in a Gurobi model, the handles are the indices of vars (null once removed)
+ */
+public class GurobiRestrictedMaster implements RestrictedMaster {
+    GRBModel model;
+    GRBConstr[] constraints;
+    ArrayList<GRBVar> vars;
+    int numOfVars; // in the model, without the removed ones
+    int status;
+
+    public GurobiRestrictedMaster(GRBEnv env) {
+        try {
+            this.model = new GRBModel(env);
+            if (Param.farkasPricingFlag) { // RMP without artificial variables may be infeasible
+                model.set(GRB.IntParam.InfUnbdInfo, 1); // the Farkas ray of an infeasible RMP
+                model.set(GRB.IntParam.DualReductions, 0); // INFEASIBLE rather than INF_OR_UNBD
+            }
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+        this.vars = new ArrayList<>();
+    }
+
+    @Override
+    public void addRows(char[] senses, double[] rhs, String[] names) {
+        try {
+            constraints = new GRBConstr[senses.length];
+            for (int i = 0; i < senses.length; i++) {
+                char sense = switch (senses[i]) {
+                    case GREATER_EQUAL -> GRB.GREATER_EQUAL;
+                    case LESS_EQUAL -> GRB.LESS_EQUAL;
+                    default -> GRB.EQUAL;
+                };
+                constraints[i] = model.addConstr(new GRBLinExpr(), sense, rhs[i], names[i]);
+            }
+            model.update();
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int[] addVars(double[] lb, double[] ub, double[] obj, int[][] rows, double[][] coeffs, String[] names) {
+        int cnt = lb.length;
+        char[] types = new char[cnt];
+        Arrays.fill(types, GRB.CONTINUOUS);
+        GRBColumn[] columns = new GRBColumn[cnt];
+        for (int h = 0; h < cnt; h++) {
+            GRBConstr[] constrs = new GRBConstr[rows[h].length];
+            for (int i = 0; i < constrs.length; i++) {
+                constrs[i] = constraints[rows[h][i]];
+            }
+            columns[h] = new GRBColumn();
+            columns[h].addTerms(coeffs[h], constrs);
+        }
+        try {
+            GRBVar[] added = model.addVars(lb, ub, obj, types, names, columns);
+            model.update();
+            int[] handles = new int[cnt];
+            for (int h = 0; h < cnt; h++) {
+                handles[h] = vars.size();
+                vars.add(added[h]);
+            }
+            numOfVars += cnt;
+            return handles;
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void removeVars(int[] handles) {
+        try {
+            for (int var : handles) {
+                model.remove(vars.get(var));
+                vars.set(var, null);
+            }
+            numOfVars -= handles.length;
+            model.update();
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private GRBVar[] toVars(int[] handles) {
+        GRBVar[] array = new GRBVar[handles.length];
+        for (int h = 0; h < handles.length; h++) {
+            array[h] = vars.get(handles[h]);
+        }
+        return array;
+    }
+
+    private void set(GRB.DoubleAttr attr, int[] handles, double[] values) {
+        if (handles.length == 0) {
+            return;
+        }
+        try {
+            model.set(attr, toVars(handles), values);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private double[] get(GRB.DoubleAttr attr, int[] handles) {
+        if (handles.length == 0) {
+            return new double[0];
+        }
+        try {
+            return model.get(attr, toVars(handles));
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void setLB(int[] handles, double[] values) {
+        set(GRB.DoubleAttr.LB, handles, values);
+    }
+
+    @Override
+    public void setUB(int[] handles, double[] values) {
+        set(GRB.DoubleAttr.UB, handles, values);
+    }
+
+    @Override
+    public void setObj(int[] handles, double[] values) {
+        set(GRB.DoubleAttr.Obj, handles, values);
+    }
+
+    @Override
+    public void setRHS(int row, double value) {
+        try {
+            constraints[row].set(GRB.DoubleAttr.RHS, value);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public double getRHS(int row) {
+        try {
+            return constraints[row].get(GRB.DoubleAttr.RHS);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean optimize() {
+        try {
+            model.optimize();
+            status = model.get(GRB.IntAttr.Status);
+            return status == GRB.OPTIMAL;
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public double getObjValue() {
+        try {
+            return model.get(GRB.DoubleAttr.ObjVal);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public double[] getDuals() {
+        try {
+            return model.get(GRB.DoubleAttr.Pi, constraints);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public double[] getValues(int[] handles) {
+        return get(GRB.DoubleAttr.X, handles);
+    }
+
+    @Override
+    public double[] getReducedCosts(int[] handles) {
+        return get(GRB.DoubleAttr.RC, handles);
+    }
+
+    /**
+     * FarkasDual of Gurobi proves lambda * Ax <= lambda * rhs infeasible, so it has the opposite signs
+     */
+    @Override
+    public double[] getFarkasDuals() {
+        if (status != GRB.INFEASIBLE) {
+            return null;
+        }
+        try {
+            double[] ray = model.get(GRB.DoubleAttr.FarkasDual, constraints);
+            for (int i = 0; i < ray.length; i++) {
+                ray[i] = -ray[i];
+            }
+            return ray;
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int[] getVarBasis(int[] handles) {
+        if (handles.length == 0) {
+            return new int[0];
+        }
+        try {
+            return model.get(GRB.IntAttr.VBasis, toVars(handles));
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int[] getRowBasis() {
+        try {
+            return model.get(GRB.IntAttr.CBasis, constraints);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Gurobi only uses the statuses once all of them are set, so each variable of the model gets one.
+     * The removed variables (the archived columns) are not in the model and get none
+     */
+    @Override
+    public void setBasis(int[] handles, int[] varBasis, int[] rowBasis) {
+        int[] status = new int[vars.size()];
+        Arrays.fill(status, NONBASIC_LOWER);
+        for (int h = 0; h < handles.length; h++) {
+            status[handles[h]] = varBasis[h];
+        }
+        GRBVar[] array = new GRBVar[numOfVars];
+        int[] values = new int[numOfVars];
+        int cnt = 0;
+        for (int h = 0; h < status.length; h++) {
+            GRBVar var = vars.get(h);
+            if (var != null) {
+                array[cnt] = var;
+                values[cnt++] = status[h];
+            }
+        }
+        try {
+            model.set(GRB.IntAttr.VBasis, array, values);
+            model.set(GRB.IntAttr.CBasis, constraints, rowBasis);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public int getIterationCount() {
+        try {
+            return (int) model.get(GRB.DoubleAttr.IterCount);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public String[] getVarNames() {
+        try {
+            return model.get(GRB.StringAttr.VarName, model.getVars());
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public double[] getVarValues() {
+        try {
+            return model.get(GRB.DoubleAttr.X, model.getVars());
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        model.dispose();
+    }
+}
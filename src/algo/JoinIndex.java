@@ -0,0 +1,110 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * the labels of one direction prepared for the bidirectional join
+ * labels are bucketed by processing time t in [0, T] and each bucket is sorted in ASC order of reduced cost,
+ * so that a label of the other direction only visits the buckets which fit into the residual capacity
+ * and stops in a bucket as soon as the joined reduced cost is not negative anymore
+ */
+class JoinIndex {
+    LabelPool pool;
+    int T;
+
+    int[] labels; // after build(): the labels in ASC order of (processingTime, reducedCost)
+    int size;
+    int[] start; // bucket t is labels[start[t], start[t + 1])
+    int[] buffer;
+
+    JoinIndex(LabelPool pool, int T) {
+        this.pool = pool;
+        this.T = T;
+        this.labels = new int[64];
+        this.buffer = new int[64];
+        this.start = new int[T + 2];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    void add(int label) {
+        ensureCapacity(size + 1);
+        labels[size++] = label;
+    }
+
+    void ensureCapacity(int capacity) {
+        if (labels.length < capacity) {
+            labels = Arrays.copyOf(labels, Math.max(capacity, 2 * labels.length));
+        }
+    }
+
+    /**
+     * sort the labels by reduced cost, then bucket them by processing time (stable, keeps the cost order)
+     */
+    void build() {
+        if (buffer.length < size) {
+            buffer = new int[labels.length];
+        }
+        sortByCost();
+        Arrays.fill(start, 0);
+        for (int k = 0; k < size; k++) {
+            start[pool.processingTime[labels[k]] + 1]++;
+        }
+        for (int t = 0; t <= T; t++) {
+            start[t + 1] += start[t];
+        }
+        int[] next = Arrays.copyOf(start, T + 1);
+        for (int k = 0; k < size; k++) {
+            int label = labels[k];
+            buffer[next[pool.processingTime[label]]++] = label;
+        }
+        int[] tmp = labels;
+        labels = buffer;
+        buffer = tmp;
+    }
+
+    /**
+     * @return the min reduced cost of the labels, only valid after build()
+     */
+    double minCost() {
+        double min = Double.MAX_VALUE;
+        for (int t = 0; t <= T; t++) {
+            if (start[t] < start[t + 1]) {
+                min = Math.min(min, pool.reducedCost[labels[start[t]]]);
+            }
+        }
+        return min;
+    }
+
+    /**
+     * bottom-up merge sort of labels[0, size) on pool.reducedCost
+     */
+    private void sortByCost() {
+        double[] cost = pool.reducedCost;
+        int[] src = labels;
+        int[] dst = buffer;
+        for (int width = 1; width < size; width *= 2) {
+            for (int lo = 0; lo < size; lo += 2 * width) {
+                int mid = Math.min(lo + width, size);
+                int hi = Math.min(lo + 2 * width, size);
+                int a = lo, b = mid, k = lo;
+                while (a < mid && b < hi) {
+                    dst[k++] = cost[src[b]] < cost[src[a]] ? src[b++] : src[a++];
+                }
+                while (a < mid) {
+                    dst[k++] = src[a++];
+                }
+                while (b < hi) {
+                    dst[k++] = src[b++];
+                }
+            }
+            int[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        labels = src;
+        buffer = dst;
+    }
+}
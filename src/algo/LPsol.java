@@ -5,6 +5,7 @@ import java.util.ArrayList;
 public class LPsol {
     public ArrayList<Block> xBlocks;
     public ArrayList<Double> xValues;
+    public ArrayList<Integer> xIndices; // the indexes of xBlocks in the column pool
 
     public ArrayList<Integer> leftJobs;
     public ArrayList<Double> yValues;
@@ -16,6 +17,7 @@ public class LPsol {
     public LPsol() {
         this.xBlocks = new ArrayList<>();
         this.xValues = new ArrayList<>();
+        this.xIndices = new ArrayList<>();
         this.leftJobs = new ArrayList<>();
         this.yValues = new ArrayList<>();
         this.leftJobsProcessingTime = 0;
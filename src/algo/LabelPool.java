@@ -0,0 +1,197 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * Label storage of the label setting algorithm
+ * a label is only an index into the primitive arrays below, the two job sets of
+ * label k are packed in words [k * nWords, (k + 1) * nWords) of containJobs / nextJobs.
+ * The arrays only grow, clear() recycles them between two pricing calls
+ */
+class LabelPool {
+    int nJobs;
+    int nWords;
+    int size;
+    int capacity;
+
+    int[] curJob;
+    int[] processingTime;
+    double[] reducedCost;
+    boolean[] dominated;
+    long[] containJobs;
+    long[] nextJobs; // jobs which can still be added to the label
+
+    LabelPool(int nJobs, int capacity) {
+        this.nJobs = nJobs;
+        this.nWords = Math.max(1, (nJobs + 63) >>> 6);
+        this.capacity = Math.max(16, capacity);
+        this.curJob = new int[this.capacity];
+        this.processingTime = new int[this.capacity];
+        this.reducedCost = new double[this.capacity];
+        this.dominated = new boolean[this.capacity];
+        this.containJobs = new long[this.capacity * nWords];
+        this.nextJobs = new long[this.capacity * nWords];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return the index of a new label whose job sets are empty
+     */
+    int create(int job, int time, double cost) {
+        if (size == capacity) {
+            grow();
+        }
+        int label = size++;
+        curJob[label] = job;
+        processingTime[label] = time;
+        reducedCost[label] = cost;
+        dominated[label] = false;
+        int offset = label * nWords;
+        Arrays.fill(containJobs, offset, offset + nWords, 0L);
+        Arrays.fill(nextJobs, offset, offset + nWords, 0L);
+        return label;
+    }
+
+    /**
+     * @return the index of a new label which copies the job sets of parent
+     */
+    int create(int parent, int job, int time, double cost) {
+        if (size == capacity) {
+            grow();
+        }
+        int label = size++;
+        curJob[label] = job;
+        processingTime[label] = time;
+        reducedCost[label] = cost;
+        dominated[label] = false;
+        System.arraycopy(containJobs, parent * nWords, containJobs, label * nWords, nWords);
+        System.arraycopy(nextJobs, parent * nWords, nextJobs, label * nWords, nWords);
+        return label;
+    }
+
+    private void grow() {
+        // keep the word arrays addressable by int
+        long maxLabels = Integer.MAX_VALUE / nWords;
+        if (capacity >= maxLabels) {
+            throw new IllegalStateException("LabelPool: too many labels " + capacity);
+        }
+        capacity = (int) Math.min(maxLabels, 2L * capacity);
+        curJob = Arrays.copyOf(curJob, capacity);
+        processingTime = Arrays.copyOf(processingTime, capacity);
+        reducedCost = Arrays.copyOf(reducedCost, capacity);
+        dominated = Arrays.copyOf(dominated, capacity);
+        containJobs = Arrays.copyOf(containJobs, capacity * nWords);
+        nextJobs = Arrays.copyOf(nextJobs, capacity * nWords);
+    }
+
+    boolean contains(int label, int job) {
+        return (containJobs[label * nWords + (job >>> 6)] & (1L << job)) != 0;
+    }
+
+    void addJob(int label, int job) {
+        containJobs[label * nWords + (job >>> 6)] |= 1L << job;
+    }
+
+    boolean hasNext(int label, int job) {
+        return (nextJobs[label * nWords + (job >>> 6)] & (1L << job)) != 0;
+    }
+
+    void setNext(int label, int job) {
+        nextJobs[label * nWords + (job >>> 6)] |= 1L << job;
+    }
+
+    void clearNext(int label, int job) {
+        nextJobs[label * nWords + (job >>> 6)] &= ~(1L << job);
+    }
+
+    /**
+     * clear the next jobs in [from, to)
+     */
+    void clearNext(int label, int from, int to) {
+        from = Math.max(from, 0);
+        to = Math.min(to, nJobs);
+        if (from >= to) {
+            return;
+        }
+        int offset = label * nWords;
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            nextJobs[offset + first] &= ~(firstMask & lastMask);
+            return;
+        }
+        nextJobs[offset + first] &= ~firstMask;
+        for (int w = first + 1; w < last; w++) {
+            nextJobs[offset + w] = 0L;
+        }
+        nextJobs[offset + last] &= ~lastMask;
+    }
+
+    /**
+     * next jobs &= ~conflicts[cOffset, cOffset + nWords) & fits[fOffset, fOffset + nWords)
+     */
+    void restrictNext(int label, long[] conflicts, int cOffset, long[] fits, int fOffset) {
+        int offset = label * nWords;
+        for (int w = 0; w < nWords; w++) {
+            nextJobs[offset + w] &= fits[fOffset + w] & ~conflicts[cOffset + w];
+        }
+    }
+
+    /**
+     * next jobs &= ~jobs[offset, offset + nWords)
+     */
+    void removeNext(int label, long[] jobs, int offset) {
+        int labelOffset = label * nWords;
+        for (int w = 0; w < nWords; w++) {
+            nextJobs[labelOffset + w] &= ~jobs[offset + w];
+        }
+    }
+
+    /**
+     * @return the first next job >= from, -1 if there is none (same contract as BitSet.nextSetBit)
+     */
+    int nextJob(int label, int from) {
+        return nextSetBit(nextJobs, label, from);
+    }
+
+    /**
+     * @return the first contained job >= from, -1 if there is none
+     */
+    int containJob(int label, int from) {
+        return nextSetBit(containJobs, label, from);
+    }
+
+    private int nextSetBit(long[] words, int label, int from) {
+        if (from >= nJobs) {
+            return -1;
+        }
+        int offset = label * nWords;
+        int w = from >>> 6;
+        long word = words[offset + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                int job = (w << 6) + Long.numberOfTrailingZeros(word);
+                return job < nJobs ? job : -1;
+            }
+            if (++w == nWords) {
+                return -1;
+            }
+            word = words[offset + w];
+        }
+    }
+
+    String toString(int label) {
+        StringBuilder sb = new StringBuilder("(");
+        sb.append(curJob[label]).append(", ").append(processingTime[label]).append(", ")
+                .append(reducedCost[label]).append(", {");
+        for (int j = containJob(label, 0); j >= 0; j = containJob(label, j + 1)) {
+            sb.append(j).append(" ");
+        }
+        return sb.append("})").toString();
+    }
+}
@@ -0,0 +1,66 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * binary min-heap of label indexes ordered by LabelPool.reducedCost
+ */
+class LabelQueue {
+    LabelPool pool;
+    int[] heap;
+    int size;
+
+    LabelQueue(LabelPool pool, int capacity) {
+        this.pool = pool;
+        this.heap = new int[Math.max(16, capacity)];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int label) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * heap.length);
+        }
+        double cost = pool.reducedCost[label];
+        int k = size++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (pool.reducedCost[heap[parent]] <= cost) {
+                break;
+            }
+            heap[k] = heap[parent];
+            k = parent;
+        }
+        heap[k] = label;
+    }
+
+    int poll() {
+        int top = heap[0];
+        int last = heap[--size];
+        if (size > 0) {
+            double cost = pool.reducedCost[last];
+            int k = 0;
+            int half = size >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int right = child + 1;
+                if (right < size && pool.reducedCost[heap[right]] < pool.reducedCost[heap[child]]) {
+                    child = right;
+                }
+                if (cost <= pool.reducedCost[heap[child]]) {
+                    break;
+                }
+                heap[k] = heap[child];
+                k = child;
+            }
+            heap[k] = last;
+        }
+        return top;
+    }
+}
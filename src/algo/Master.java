@@ -7,25 +7,67 @@ import gurobi.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 
 public class Master {
     Instance instance;
     int numJobs;
     ColumnPool columnPool;
-
-    GRBEnv env;
-    GRBModel model;
-    GRBConstr[] constraints;// constraint1_1-n是第一组约束
-    ArrayList<GRBVar> x;
+    boolean[] valid; // column k satisfies the branching information of the current node
+    boolean[] active; // UB of x[k] is INFINITY, the inactive columns are only priced from the pool
+    /**
+     * violations[k]: the number of branching constraints on the path of the current node (Node.columnBranch)
+     * which column k violates, it is valid iff 0. Switching nodes only removes the constraints from the old node
+     * up to the common ancestor and adds those down to the new node
+     */
+    int[] violations;
+    Node current;
+    double[] yLB;
+    double[] yUB;
+    /**
+     * column aging: age[k] is the number of solves in a row where the reduced cost of x[k] > columnAgeReducedCost
+     * (so it is nonbasic at 0). A node switch removes the columns of age >= maxColumnAge from the model,
+     * they stay in the pool as masks (archived) and are added back when activateNegativeColumns prices them out
+     */
+    int[] age;
+    boolean[] archived; // x[k] is null
+    int maxColumnAge; // <= 0: no aging
+    boolean poolPricing; // a valid column is only activated when it prices out negative, see set()
+    double columnAgeReducedCost;
+    int numOfPurgedColumns;
+    int numOfRestoredColumns;
+    // the columns in the model, rebuilt when it changes
+    int[] modelVars;
+    int[] modelIndices;
+    boolean modelColumnsChanged = true;
+    // the bound changes of the next flushBounds()
+    int[] boundVars;
+    double[] boundValues;
+    int numOfBoundChanges;
+
+    GRBEnv env; // null with the SIMPLEX backend until solveIntegerProgram needs it
+    RestrictedMaster lp; // rows: constraint1_1-n是第一组约束, then constraint2, constraint3, constraint4
+    int[] x; // the variable of each pool column, -1 if archived
     int nVar;
-    GRBVar[] y;
-    GRBVar[] artificialVariable;
+    int[] y;
+    int[] artificialVariable; // empty with Farkas pricing
+    double[] farkasDuals; // the Farkas ray of the last solve if RMP is infeasible, otherwise null
+    /**
+     * du Merle stabilization of the duals of the cover rows: boxPlus[i] (+1 in row i, cost center_i + width_i)
+     * and boxMinus[i] (-1 in row i, cost -(center_i - width_i)), both with UB slack.
+     * A dual outside [center - width, center + width] costs slack per unit, UB 0 switches the box off
+     */
+    int[] boxPlus;
+    int[] boxMinus;
+    boolean boxOn;
+    int[] fixedVars; // y, the artificial variables and the box: the variables which are never removed
+    int numOfBasisRestores;
 
     Node node;
 
     long s0;
-    double timeOnRMPAddColumns;
+    double timeOnRMPAddColumns; // since the last solve
     double timeOnRMPSolve; // record only once time of solving master problem
     int cntCalls;
 
@@ -33,7 +75,21 @@ public class Master {
     public Master(Instance instance) throws GRBException {
         this.instance = instance;
         this.numJobs = instance.nJobs;
-        this.columnPool = new ColumnPool();
+        this.columnPool = new ColumnPool(numJobs);
+        this.valid = new boolean[64];
+        this.active = new boolean[64];
+        this.violations = new int[64];
+        this.age = new int[64];
+        this.archived = new boolean[64];
+        this.maxColumnAge = Param.maxColumnAge;
+        this.poolPricing = Param.poolPricingFlag;
+        this.columnAgeReducedCost = Param.columnAgeReducedCost;
+        this.yLB = new double[numJobs];
+        this.yUB = new double[numJobs];
+        Arrays.fill(yUB, GRB.INFINITY);
+        this.boundVars = new int[64];
+        this.x = new int[64];
+        this.boundValues = new double[64];
 
         try {
             formulate();
@@ -43,134 +99,343 @@ public class Master {
 
     }
 
+    /**
+     * Param.masterBackend: GUROBI or SIMPLEX (SimplexRestrictedMaster, no license needed)
+     */
     public void formulate() throws GRBException {
-        this.env = new GRBEnv(true);
-        env.set(GRB.IntParam.OutputFlag, 0);
-        env.set(GRB.IntParam.Seed, Base.SEED);
-        env.set(GRB.IntParam.Threads, Param.nThreads);
-        env.start();
-        this.model = new GRBModel(env);
-        this.x = new ArrayList<>();
-        this.y = new GRBVar[numJobs];
-        this.artificialVariable = new GRBVar[numJobs + 1];
-        // The constraint with lbNumOfBlocks and ubNumOfBlocks can only be written separately
-        this.constraints = new GRBConstr[numJobs + 3];
-        // y_i =[0,1] ====> y_i >= 0
-        for (int i = 0; i < numJobs; i++) {
-            // y[i] = model.addVar(0.0, GRB.INFINITY, instance.p[i], GRB.BINARY, "y_" + (i + 1));
-
-            y[i] = model.addVar(0.0, GRB.INFINITY, instance.p[i], GRB.CONTINUOUS, "y_" + (i + 1));
+        if ("SIMPLEX".equals(Param.masterBackend)) {
+            this.lp = new SimplexRestrictedMaster();
+        } else {
+            this.lp = new GurobiRestrictedMaster(getEnv());
         }
+        // The constraint with lbNumBlocks and ubNumBlocks can only be written separately
+        char[] senses = new char[numJobs + 3];
+        double[] rhs = new double[numJobs + 3];
+        String[] names = new String[numJobs + 3];
         for (int i = 0; i < numJobs; i++) {
-            GRBLinExpr constr1 = new GRBLinExpr(); // firstly, only put y in the constraint ,x will be generated lately
-            constr1.addTerm(1, y[i]); // in the form of column
-            constraints[i] = model.addConstr(constr1, GRB.GREATER_EQUAL, 1, "constraint1_" + (i + 1));
+            senses[i] = RestrictedMaster.GREATER_EQUAL;
+            rhs[i] = 1;
+            names[i] = "constraint1_" + (i + 1);
         }
-
-        GRBLinExpr constr2 = new GRBLinExpr(); // sum_i (p[i]y[i]) <= T
+        senses[numJobs] = RestrictedMaster.LESS_EQUAL; // sum_i (p[i]y[i]) <= T
+        rhs[numJobs] = instance.T;
+        names[numJobs] = "constraint2";
+        senses[numJobs + 1] = RestrictedMaster.GREATER_EQUAL; // sum_p (x[p] >= lbNumOfBlocks)
+        rhs[numJobs + 1] = 0;
+        names[numJobs + 1] = "constraint3";
+        senses[numJobs + 2] = RestrictedMaster.LESS_EQUAL; // sum_p (x[p] <= ubNumOfBlocks)
+        rhs[numJobs + 2] = instance.nJobs;
+        names[numJobs + 2] = "constraint4";
+        lp.addRows(senses, rhs, names);
+
+        // y_i =[0,1] ====> y_i >= 0, firstly only y is in the constraints, x will be generated lately
+        double[] lb = new double[numJobs];
+        double[] ub = new double[numJobs];
+        double[] obj = new double[numJobs];
+        int[][] rows = new int[numJobs][];
+        double[][] coeffs = new double[numJobs][];
+        String[] varNames = new String[numJobs];
+        Arrays.fill(ub, GRB.INFINITY);
         for (int i = 0; i < numJobs; i++) {
-            constr2.addTerm(instance.p[i], y[i]);
+            obj[i] = instance.p[i];
+            rows[i] = new int[]{i, numJobs};
+            coeffs[i] = new double[]{1, instance.p[i]};
+            varNames[i] = "y_" + (i + 1);
+        }
+        this.y = lp.addVars(lb, ub, obj, rows, coeffs, varNames);
+        if (Param.farkasPricingFlag) {
+            this.artificialVariable = new int[0];
+        } else {
+            addArtificialVariable();
+        }
+        addDualBox();
+        this.fixedVars = new int[0];
+        for (int[] vars : new int[][]{y, artificialVariable, boxPlus, boxMinus}) {
+            int cnt = fixedVars.length;
+            fixedVars = Arrays.copyOf(fixedVars, cnt + vars.length);
+            System.arraycopy(vars, 0, fixedVars, cnt, vars.length);
         }
-        constraints[numJobs] = model.addConstr(constr2, GRB.LESS_EQUAL, instance.T, "constraint2");
-
-        GRBLinExpr constr3 = new GRBLinExpr(); // sum_p (x[p] >= lbNumOfBlocks)
-        constraints[numJobs + 1] = model.addConstr(constr3, GRB.GREATER_EQUAL, 0, "constraint3");
 
-        GRBLinExpr constr4 = new GRBLinExpr(); // sum_p (x[p] <= ubNumOfBlocks)
-        constraints[numJobs + 2] = model.addConstr(constr4, GRB.LESS_EQUAL, instance.nJobs, "constraint4");
+    }
 
-        GRBLinExpr obj = new GRBLinExpr(); // set the objective to the model
-        for (int i = 0; i < numJobs; i++) {
-            obj.addTerm(instance.p[i], y[i]);
+    private GRBEnv getEnv() throws GRBException {
+        if (env == null) {
+            this.env = new GRBEnv(true);
+            env.set(GRB.IntParam.OutputFlag, 0);
+            env.set(GRB.IntParam.Seed, Base.SEED);
+            env.set(GRB.IntParam.Threads, Param.nThreads);
+            env.start();
         }
-        model.setObjective(obj, GRB.MINIMIZE);
-        addArtificialVariable();
-
+        return env;
     }
 
     public void set(Node node) throws GRBException {
         this.node = node;
+        Node previous = current;
+        purgeColumns();
 
         /**
          * tighten the RHS of [\sum_j p_j y_j <= RHS]
          */
-        if(constraints[numJobs].get(GRB.DoubleAttr.RHS) > node.RHS){
-            // System.out.println("old RHS: " + constraints[numJobs].get(GRB.DoubleAttr.RHS));
+        if(lp.getRHS(numJobs) > node.RHS){
+            // System.out.println("old RHS: " + lp.getRHS(numJobs));
             // System.out.println("new RHS: " + node.RHS);
-            constraints[numJobs].set(GRB.DoubleAttr.RHS, node.RHS);
+            lp.setRHS(numJobs, node.RHS);
         }
 
         /**
          * branch strategy 1
          * update the constraint.lbNumBlocks and ubNumBlocks according to node.lbNumBlocks and ubNumBlocks
          */
-        if (!Base.equals(constraints[numJobs + 1].get(GRB.DoubleAttr.RHS), node.lbNumBlocks)) {
-            constraints[numJobs + 1].set(GRB.DoubleAttr.RHS, node.lbNumBlocks);
+        if (!Base.equals(lp.getRHS(numJobs + 1), node.lbNumBlocks)) {
+            lp.setRHS(numJobs + 1, node.lbNumBlocks);
         }
-        if (!Base.equals(constraints[numJobs + 2].get(GRB.DoubleAttr.RHS), node.ubNumBlocks)) {
-            constraints[numJobs + 2].set(GRB.DoubleAttr.RHS, node.ubNumBlocks);
+        if (!Base.equals(lp.getRHS(numJobs + 2), node.ubNumBlocks)) {
+            lp.setRHS(numJobs + 2, node.ubNumBlocks);
         }
 
         /**
          * branch strategy 2
-         * update the lb and ub of y according to yZero and yOne
+         * update the lb and ub of y according to yZero and yOne, only the changed bounds
          */
-        for (int i = 0; i < y.length; i++) {
-            if (node.yZero.contains(i)) {
-                y[i].set(GRB.DoubleAttr.LB, 0);
-                y[i].set(GRB.DoubleAttr.UB, 0);
-            } else if (node.yOne.contains(i)) {
-                y[i].set(GRB.DoubleAttr.LB, 1);
-                y[i].set(GRB.DoubleAttr.UB, 1);
-            } else {
-                y[i].set(GRB.DoubleAttr.LB, 0);
-                y[i].set(GRB.DoubleAttr.UB, GRB.INFINITY);
+        double[] lb = new double[numJobs];
+        double[] ub = new double[numJobs];
+        Arrays.fill(ub, GRB.INFINITY);
+        for (int i : node.yZero) {
+            ub[i] = 0;
+        }
+        for (int i : node.yOne) {
+            lb[i] = 1;
+            ub[i] = 1;
+        }
+        for (int i = 0; i < numJobs; i++) {
+            if (lb[i] != yLB[i]) {
+                stageBound(y[i], lb[i]);
+                yLB[i] = lb[i];
             }
         }
-      /*   }
-        for (Integer ZeroIndex : node.yZero) {
-            y[ZeroIndex].set(GRB.DoubleAttr.LB, 0);
-            y[ZeroIndex].set(GRB.DoubleAttr.UB, 0);
+        flushBounds(false);
+        for (int i = 0; i < numJobs; i++) {
+            if (ub[i] != yUB[i]) {
+                stageBound(y[i], ub[i]);
+                yUB[i] = ub[i];
+            }
         }
-        for (Integer oneIndex : node.yOne) {
-            y[oneIndex].set(GRB.DoubleAttr.LB, 1);
-            y[oneIndex].set(GRB.DoubleAttr.UB, 1);
-        } */
-
+        flushBounds(true);
 
         /**
          * branch strategy 3 and strategy 2
          * if y_i = 1 if column x contain job i -> is No Valid
-         * set the columns in columnPool 0/1 according to the branch(and - or) information
+         * as before, the invalid columns are fixed to 0 and the valid ones have UB = INFINITY,
+         * but only the columns whose validity changes are staged. The archived columns stay out of the model
+         * pool pricing: the valid columns keep their state, those of the parent's LP solution are activated
+         * and the others wait for activateNegativeColumns, so RMP stays small deep in the tree
          */
-        for (int i = 0; i < columnPool.size(); i++) {
-            Block block = columnPool.get(i);
-            // x should be restored to its original value theoretically
-            // but through the judgement of validity of this column, x will achieve the same effect
-            if (!node.isValid(block)) {
-                x.get(i).set(GRB.DoubleAttr.LB, 0);
-                x.get(i).set(GRB.DoubleAttr.UB, 0);
-            } else {
-                x.get(i).set(GRB.DoubleAttr.LB, 0);
-                x.get(i).set(GRB.DoubleAttr.UB, GRB.INFINITY);
+        updateViolations(node);
+        for (int k = 0; k < columnPool.size(); k++) {
+            valid[k] = violations[k] == 0;
+            if (!archived[k] && active[k] != valid[k] && (!valid[k] || !poolPricing)) {
+                stageActive(k, valid[k]);
             }
         }
+        ArrayList<Integer> restored = new ArrayList<>();
+        if (poolPricing && node.parent != null && node.parent.lpSol != null) {
+            for (int k : node.parent.lpSol.xIndices) {
+                if (valid[k] && !active[k]) {
+                    activate(k, restored);
+                }
+            }
+        }
+        flushBounds(true);
+        restoreColumns(restored);
+        // best first search jumps across the tree, the basis left by the previous node may be far from this one
+        if (Param.warmStartBasisFlag && node.parent != null && node.parent.basisRowStatus != null
+                && previous != node.parent) {
+            restoreBasis(node.parent);
+        }
+        if (Param.debug) {
+            for (int k = 0; k < columnPool.size(); k++) {
+                if (valid[k] != node.isValid(columnPool.get(k))) {
+                    System.err.println("error: validity of column " + k + " at node " + node.nodeID);
+                }
+            }
+        }
+    }
 
+    /**
+     * undo the branching constraints from the current node up to the common ancestor, then apply those down to node
+     */
+    private void updateViolations(Node node) {
+        if (current == null || root(current) != root(node)) {
+            for (int k = 0; k < columnPool.size(); k++) {
+                violations[k] = countViolations(k, node);
+            }
+            current = node;
+            return;
+        }
+        Node from = current;
+        Node to = node;
+        while (from.depth > to.depth) {
+            applyBranch(from, -1);
+            from = from.parent;
+        }
+        while (to.depth > from.depth) {
+            applyBranch(to, 1);
+            to = to.parent;
+        }
+        while (from != to) {
+            applyBranch(from, -1);
+            applyBranch(to, 1);
+            from = from.parent;
+            to = to.parent;
+        }
+        current = node;
+    }
+
+    private Node root(Node node) {
+        while (node.parent != null) {
+            node = node.parent;
+        }
+        return node;
+    }
+
+    private void applyBranch(Node node, int delta) {
+        if (node.columnBranch == ColumnBranch.NONE) {
+            return;
+        }
+        for (int k = 0; k < columnPool.size(); k++) {
+            if (violates(k, node)) {
+                violations[k] += delta;
+            }
+        }
+    }
+
+    private int countViolations(int k, Node node) {
+        int cnt = 0;
+        for (Node v = node; v != null; v = v.parent) {
+            if (violates(k, v)) {
+                cnt++;
+            }
+        }
+        return cnt;
+    }
+
+    /**
+     * @return true if column k violates the constraint added by the branching of node
+     */
+    private boolean violates(int k, Node node) {
+        return switch (node.columnBranch) {
+            case EXCLUDE -> columnPool.contains(k, node.branchA);
+            case TOGETHER -> columnPool.contains(k, node.branchA) != columnPool.contains(k, node.branchB);
+            case APART -> columnPool.contains(k, node.branchA) && columnPool.contains(k, node.branchB);
+            case ANY -> !node.isValid(columnPool.get(k));
+            default -> false;
+        };
+    }
+
+    private void activate(int k, ArrayList<Integer> restored) {
+        if (archived[k]) {
+            restored.add(k);
+        } else {
+            stageActive(k, true);
+        }
+    }
+
+    private void stageActive(int k, boolean flag) {
+        stageBound(x[k], flag ? GRB.INFINITY : 0);
+        active[k] = flag;
+    }
+
+    private void stageBound(int var, double value) {
+        if (numOfBoundChanges == boundVars.length) {
+            boundVars = Arrays.copyOf(boundVars, 2 * numOfBoundChanges);
+            boundValues = Arrays.copyOf(boundValues, 2 * numOfBoundChanges);
+        }
+        boundVars[numOfBoundChanges] = var;
+        boundValues[numOfBoundChanges] = value;
+        numOfBoundChanges++;
+    }
+
+    /**
+     * set the staged bounds in one call
+     */
+    private void flushBounds(boolean upper) {
+        if (numOfBoundChanges == 0) {
+            return;
+        }
+        int[] vars = Arrays.copyOf(boundVars, numOfBoundChanges);
+        double[] values = Arrays.copyOf(boundValues, numOfBoundChanges);
+        if (upper) {
+            lp.setUB(vars, values);
+        } else {
+            lp.setLB(vars, values);
+        }
+        numOfBoundChanges = 0;
+    }
+
+    /**
+     * pool pricing: activate the valid inactive columns whose reduced cost is negative under duals,
+     * at most maxNumOfColumns of them, the most negative first. The archived columns are priced the same way
+     *
+     * @return the number of activated columns
+     */
+    public int activateNegativeColumns(double[] duals, int maxNumOfColumns) throws GRBException {
+        double constant = instance.T + instance.t - duals[numJobs + 1] - duals[numJobs + 2];
+        ArrayList<Integer> negative = new ArrayList<>();
+        double[] reducedCosts = new double[columnPool.size()];
+        for (int k = 0; k < columnPool.size(); k++) {
+            if (active[k] || !valid[k]) {
+                continue;
+            }
+            reducedCosts[k] = constant - columnPool.dualValue(k, duals);
+            if (reducedCosts[k] + Base.EPS < 0) {
+                negative.add(k);
+            }
+        }
+        negative.sort(Comparator.comparingDouble(k -> reducedCosts[k]));
+        int cnt = Math.min(maxNumOfColumns, negative.size());
+        ArrayList<Integer> restored = new ArrayList<>();
+        for (int h = 0; h < cnt; h++) {
+            activate(negative.get(h), restored);
+        }
+        flushBounds(true);
+        restoreColumns(restored);
+        node.numOfColumnsFromPool += cnt;
+        return cnt;
+    }
+
+    /**
+     * a new column is active iff it is valid at the current node
+     */
+    private void addColumnStates() {
+        int k = columnPool.size() - 1;
+        if (k == valid.length) {
+            valid = Arrays.copyOf(valid, 2 * k);
+            active = Arrays.copyOf(active, 2 * k);
+            violations = Arrays.copyOf(violations, 2 * k);
+            age = Arrays.copyOf(age, 2 * k);
+            archived = Arrays.copyOf(archived, 2 * k);
+            x = Arrays.copyOf(x, 2 * k);
+        }
+        x[k] = -1;
+        violations[k] = current == null ? 0 : countViolations(k, current);
+        valid[k] = violations[k] == 0;
+        active[k] = valid[k];
     }
 
     public void addColumns(ArrayList<Block> blocks) throws GRBException {
         long s0 = System.currentTimeMillis();
-        if (Param.debug) {
+        if (Param.debug && farkasDuals == null) {
             double[] dual = getDualValues();
             for (Block block : blocks) {
                 boolean feasible = true;
                 int index = columnPool.indexOf(block);
                 if (index > -1) {
                     double rc1 = block.calculateReducedCost(instance, dual);
-                    GRBVar var = x.get(index);
+                    int var = x[index]; // -1 if archived
                     // 不知道是怎么计算的，但是可以计算出来？？
-                    double rc2 = var.get(GRB.DoubleAttr.RC);
-                    double ub = var.get(GRB.DoubleAttr.UB);
+                    double rc2 = var >= 0 ? lp.getReducedCosts(new int[]{var})[0] : Double.NaN;
+                    double ub = active[index] ? GRB.INFINITY : 0;
 
 
                     System.err.println("RMP.addColumns():column existed!" + block + "\t" + "rc1: " + rc1 + "\t" +
@@ -192,48 +457,216 @@ public class Master {
             }
         }
 
-        for (Block block : blocks) {
-            double[] coeffs = new double[numJobs + 3];
-            for (int job : block) {
-                coeffs[job] = 1;
-            }
-            coeffs[numJobs] = 0;
-            coeffs[numJobs + 1] = 1;
-            coeffs[numJobs + 2] = 1;
-            x.add(model.addVar(0.0, GRB.INFINITY, instance.T + instance.t, GRB.CONTINUOUS,
-                    constraints, coeffs, "x_" + (nVar + 1)));
-            model.update();
-            columnPool.add(block);
-            nVar++;
-            timeOnRMPAddColumns = Base.getTimeCost(s0);
-        }
+        addVars(blocks);
+        timeOnRMPAddColumns += Base.getTimeCost(s0);
     }
 
 
     public void addColumnsWithoutCheck(ArrayList<Block> blocks) throws GRBException {
         long s0 = System.currentTimeMillis();
+        addVars(blocks);
+        timeOnRMPAddColumns += Base.getTimeCost(s0);
+    }
+
+    /**
+     * the columns which are not valid at the current node are added with UB 0
+     */
+    private void addVars(ArrayList<Block> blocks) throws GRBException {
+        int cnt = blocks.size();
+        if (cnt == 0) {
+            return;
+        }
+        int[] columns = new int[cnt];
+        double[] ub = new double[cnt];
+        for (int h = 0; h < cnt; h++) {
+            columnPool.add(blocks.get(h));
+            addColumnStates();
+            columns[h] = columnPool.size() - 1;
+            ub[h] = active[columns[h]] ? GRB.INFINITY : 0;
+        }
+        createVars(columns, ub);
+        nVar += cnt;
+    }
 
-        for (Block block : blocks) {
-            double[] coeffs = new double[numJobs + 3];
+    /**
+     * the variables of the pool columns in one addVars and one update,
+     * a column only has its nonzeros: the cover rows of its jobs and the two rows of the number of blocks
+     */
+    private void createVars(int[] columns, double[] ub) throws GRBException {
+        int cnt = columns.length;
+        double[] lb = new double[cnt];
+        double[] obj = new double[cnt];
+        String[] names = new String[cnt];
+        int[][] rows = new int[cnt][];
+        double[][] coeffs = new double[cnt][];
+        Arrays.fill(obj, instance.T + instance.t);
+        for (int h = 0; h < cnt; h++) {
+            Block block = columnPool.get(columns[h]);
+            rows[h] = new int[block.size() + 2];
+            coeffs[h] = new double[rows[h].length];
+            int i = 0;
             for (int job : block) {
-                coeffs[job] = 1;
+                rows[h][i++] = job;
+            }
+            rows[h][i++] = numJobs + 1;
+            rows[h][i] = numJobs + 2;
+            Arrays.fill(coeffs[h], 1);
+            names[h] = "x_" + (columns[h] + 1);
+        }
+        int[] vars = lp.addVars(lb, ub, obj, rows, coeffs, names);
+        for (int h = 0; h < cnt; h++) {
+            x[columns[h]] = vars[h];
+        }
+        modelColumnsChanged = true;
+    }
+
+    /**
+     * remove the columns of age >= maxColumnAge from the model, they are nonbasic at 0
+     */
+    private void purgeColumns() throws GRBException {
+        if (maxColumnAge <= 0) {
+            return;
+        }
+        ArrayList<Integer> purged = new ArrayList<>();
+        for (int k = 0; k < columnPool.size(); k++) {
+            if (!archived[k] && age[k] >= maxColumnAge) {
+                purged.add(x[k]);
+                x[k] = -1;
+                archived[k] = true;
+                active[k] = false;
+            }
+        }
+        if (!purged.isEmpty()) {
+            lp.removeVars(purged.stream().mapToInt(Integer::intValue).toArray());
+            modelColumnsChanged = true;
+            numOfPurgedColumns += purged.size();
+        }
+    }
+
+    /**
+     * add the archived columns back to the model, active
+     */
+    private void restoreColumns(ArrayList<Integer> restored) throws GRBException {
+        if (restored.isEmpty()) {
+            return;
+        }
+        int[] columns = new int[restored.size()];
+        double[] ub = new double[columns.length];
+        for (int h = 0; h < columns.length; h++) {
+            int k = restored.get(h);
+            columns[h] = k;
+            ub[h] = GRB.INFINITY;
+            archived[k] = false;
+            active[k] = true;
+            age[k] = 0;
+        }
+        createVars(columns, ub);
+        numOfRestoredColumns += columns.length;
+    }
+
+    private void collectModelColumns() {
+        if (!modelColumnsChanged) {
+            return;
+        }
+        int cnt = 0;
+        for (int k = 0; k < columnPool.size(); k++) {
+            if (!archived[k]) {
+                cnt++;
             }
-            coeffs[numJobs] = 0;
-            coeffs[numJobs + 1] = 1;
-            coeffs[numJobs + 2] = 1;
-            x.add(model.addVar(0.0, GRB.INFINITY, instance.T + instance.t, GRB.CONTINUOUS,
-                    constraints, coeffs, "x_" + (nVar + 1)));
-            model.update();
-            columnPool.add(block);
+        }
+        modelVars = new int[cnt];
+        modelIndices = new int[cnt];
+        cnt = 0;
+        for (int k = 0; k < columnPool.size(); k++) {
+            if (!archived[k]) {
+                modelVars[cnt] = x[k];
+                modelIndices[cnt++] = k;
+            }
+        }
+        modelColumnsChanged = false;
+    }
 
-            nVar++;
-            timeOnRMPAddColumns = Base.getTimeCost(s0);
+    private void ageColumns() throws GRBException {
+        if (maxColumnAge <= 0) {
+            return;
+        }
+        collectModelColumns();
+        if (modelVars.length == 0) {
+            return;
+        }
+        double[] reducedCosts = lp.getReducedCosts(modelVars);
+        for (int h = 0; h < modelVars.length; h++) {
+            int k = modelIndices[h];
+            age[k] = reducedCosts[h] > columnAgeReducedCost ? age[k] + 1 : 0;
         }
     }
 
-    // model is feasible when all the artificial variables are equal to 0
+    /**
+     * keep the basis of the last solve in node, the columns at 0 are left out (most of them)
+     */
+    public void saveBasis(Node node) throws GRBException {
+        collectModelColumns();
+        int[] status = lp.getVarBasis(modelVars);
+        int cnt = 0;
+        for (int s : status) {
+            if (s != RestrictedMaster.NONBASIC_LOWER) {
+                cnt++;
+            }
+        }
+        node.basisColumns = new int[cnt];
+        node.basisColumnStatus = new int[cnt];
+        cnt = 0;
+        for (int h = 0; h < status.length; h++) {
+            if (status[h] != RestrictedMaster.NONBASIC_LOWER) {
+                node.basisColumns[cnt] = modelIndices[h];
+                node.basisColumnStatus[cnt++] = status[h];
+            }
+        }
+        node.basisFixedStatus = lp.getVarBasis(fixedVars);
+        node.basisRowStatus = lp.getRowBasis();
+    }
+
+    /**
+     * start the next solve from the basis saved in node, the columns added since are nonbasic at 0
+     * and the archived ones are left out (the LP repairs the basis if one of them was basic)
+     */
+    private void restoreBasis(Node node) throws GRBException {
+        int[] vars = Arrays.copyOf(fixedVars, fixedVars.length + node.basisColumns.length);
+        int[] status = Arrays.copyOf(node.basisFixedStatus, vars.length);
+        int cnt = fixedVars.length;
+        for (int h = 0; h < node.basisColumns.length; h++) {
+            int k = node.basisColumns[h];
+            if (x[k] >= 0) {
+                vars[cnt] = x[k];
+                status[cnt++] = node.basisColumnStatus[h];
+            }
+        }
+        lp.setBasis(Arrays.copyOf(vars, cnt), Arrays.copyOf(status, cnt), node.basisRowStatus);
+        numOfBasisRestores++;
+    }
+
+    /**
+     * the Farkas ray of the infeasible RMP scaled to a max of 1, null if RMP is not proven infeasible.
+     * A column can only repair RMP if its Farkas reduced cost -ray * column is negative
+     */
+    public double[] getFarkasDuals() {
+        double scale = 0;
+        for (int i = 0; farkasDuals != null && i < farkasDuals.length; i++) {
+            scale = Math.max(scale, Math.abs(farkasDuals[i]));
+        }
+        if (scale == 0) {
+            return null;
+        }
+        double[] ray = new double[farkasDuals.length];
+        for (int i = 0; i < ray.length; i++) {
+            ray[i] = farkasDuals[i] / scale;
+        }
+        return ray;
+    }
+
+    // model is feasible when all the artificial variables are equal to 0 (none with Farkas pricing)
     public boolean isPrimalModelFeasible() throws GRBException {
-        double[] artificialValues = model.get(GRB.DoubleAttr.X, artificialVariable);
+        double[] artificialValues = lp.getValues(artificialVariable);
         for (double value : artificialValues) {
             if (!Base.equals(value, 0)) {
                 return false;
@@ -248,32 +681,126 @@ public class Master {
      * because < / <= can be satisfied
      */
     public void addArtificialVariable() throws GRBException {
+        double bigM = numJobs * (instance.T + instance.t);
+        double[] lb = new double[numJobs + 1];
+        double[] ub = new double[numJobs + 1];
+        double[] obj = new double[numJobs + 1];
+        int[][] rows = new int[numJobs + 1][];
+        double[][] coeffs = new double[numJobs + 1][];
+        String[] names = new String[numJobs + 1];
+        Arrays.fill(ub, GRB.INFINITY);
+        Arrays.fill(obj, bigM);
+        for (int i = 0; i <= numJobs; i++) {
+            rows[i] = new int[]{i < numJobs ? i : numJobs + 1};
+            coeffs[i] = new double[]{1};
+            names[i] = "artificial_var_" + (i + 1);
+        }
+        this.artificialVariable = lp.addVars(lb, ub, obj, rows, coeffs, names);
+    }
+
+    private void addDualBox() throws GRBException {
+        double[] zeros = new double[numJobs];
+        String[] plusNames = new String[numJobs];
+        String[] minusNames = new String[numJobs];
+        int[][] rows = new int[numJobs][];
+        double[][] plusCoeffs = new double[numJobs][];
+        double[][] minusCoeffs = new double[numJobs][];
         for (int i = 0; i < numJobs; i++) {
-            GRBColumn column = new GRBColumn();
-            column.addTerm(1, constraints[i]);
-            double bigM = numJobs * (instance.T + instance.t);
-            artificialVariable[i] = model.addVar(0, GRB.INFINITY, bigM, GRB.CONTINUOUS, column, "artificial_var_" + (i + 1));
+            plusNames[i] = "box_plus_" + (i + 1);
+            minusNames[i] = "box_minus_" + (i + 1);
+            rows[i] = new int[]{i};
+            plusCoeffs[i] = new double[]{1};
+            minusCoeffs[i] = new double[]{-1};
         }
-        GRBColumn column = new GRBColumn();
-        column.addTerm(1, constraints[numJobs + 1]);
-        double bigM = numJobs * (instance.T + instance.t);
-        artificialVariable[numJobs] = model.addVar(0, GRB.INFINITY, bigM, GRB.CONTINUOUS, column, "artificial_var_" + (numJobs + 1));
+        this.boxPlus = lp.addVars(zeros, zeros, zeros, rows, plusCoeffs, plusNames);
+        this.boxMinus = lp.addVars(zeros, zeros, zeros, rows, minusCoeffs, minusNames);
+    }
+
+    /**
+     * center the box of the cover duals on center, with half width width * |center_i| (at least EPS)
+     */
+    public void setDualBox(double[] center, double width, double slack) throws GRBException {
+        double[] plusCosts = new double[numJobs];
+        double[] minusCosts = new double[numJobs];
+        for (int i = 0; i < numJobs; i++) {
+            double delta = Math.max(Base.EPS, width * Math.abs(center[i]));
+            plusCosts[i] = center[i] + delta;
+            minusCosts[i] = -(center[i] - delta);
+        }
+        lp.setObj(boxPlus, plusCosts);
+        lp.setObj(boxMinus, minusCosts);
+        if (!boxOn) {
+            double[] ub = new double[numJobs];
+            Arrays.fill(ub, slack);
+            lp.setUB(boxPlus, ub);
+            lp.setUB(boxMinus, ub);
+            boxOn = true;
+        }
+    }
+
+    /**
+     * back to the plain RMP, its LP value and duals are those of the node
+     */
+    public void removeDualBox() throws GRBException {
+        if (!boxOn) {
+            return;
+        }
+        double[] zeros = new double[numJobs];
+        lp.setUB(boxPlus, zeros);
+        lp.setUB(boxMinus, zeros);
+        boxOn = false;
     }
 
     public double[] getDualValues() throws GRBException {
-        return model.get(GRB.DoubleAttr.Pi, constraints);
+        return lp.getDuals();
+    }
+
+    /**
+     * the Lagrangian bound of the LP of the node at any duals with the signs of the rows (not only those of RMP):
+     * for every solution, cost = duals * rhs + the reduced costs of y and the artificial variables within their bounds
+     * + the reduced costs of the blocks, the blocks are at most ubNumOfBlocks (the RHS of constraint4).
+     * The box of the stabilization is not a part of the node, it is left out
+     *
+     * @param minReducedCost the min reduced cost of the valid blocks under duals, given by an exhaustive pricing
+     * @return -infinity if a variable with negative reduced cost has no upper bound
+     */
+    public double lagrangianBound(double[] duals, double minReducedCost) throws GRBException {
+        double[] rhs = new double[numJobs + 3];
+        double bound = 0;
+        for (int i = 0; i < rhs.length; i++) {
+            rhs[i] = lp.getRHS(i);
+            bound += duals[i] * rhs[i];
+        }
+        for (int i = 0; i < numJobs; i++) {
+            double reducedCost = instance.p[i] - duals[i] - instance.p[i] * duals[numJobs];
+            if (reducedCost >= 0) {
+                bound += reducedCost * yLB[i];
+            } else if (yUB[i] < GRB.INFINITY) {
+                bound += reducedCost * yUB[i];
+            } else {
+                return -GRB.INFINITY;
+            }
+        }
+        double bigM = numJobs * (instance.T + instance.t);
+        for (int i = 0; i < artificialVariable.length; i++) {
+            if (bigM - duals[i < numJobs ? i : numJobs + 1] < 0) {
+                return -GRB.INFINITY;
+            }
+        }
+        // the pricing prunes the labels up to EPS
+        return bound + rhs[numJobs + 2] * (Math.min(0, minReducedCost) - Base.EPS);
     }
 
     public String[] getVarNames() throws GRBException {
-        return model.get(GRB.StringAttr.VarName, model.getVars());
+        return lp.getVarNames();
     }
 
     public double[] getVarValues() throws GRBException {
-        return model.get(GRB.DoubleAttr.X, model.getVars());
+        return lp.getVarValues();
     }
 
     public double getObjValue() throws GRBException {
-        return model.get(GRB.DoubleAttr.ObjVal);
+        return lp.getObjValue();
     }
 
     // TODO: 2024/1/2 getVarNameAndVarValue which > 0
@@ -286,10 +813,11 @@ public class Master {
                 map.put(varName ,varValue);
             }
         } */
+        double[] yValues = lp.getValues(y);
         for (int j = 0; j < y.length; j++) {
-            double varValue = y[j].get(GRB.DoubleAttr.X);
+            double varValue = yValues[j];
             if (varValue > 0) {
-                String varName = y[j].get(GRB.StringAttr.VarName);
+                String varName = "y_" + (j + 1);
                 map.put(varName, varValue);
             }
         }
@@ -300,21 +828,26 @@ public class Master {
 
     public LPsol getLPSol() throws GRBException {
         LPsol lPsol = new LPsol();
-        lPsol.objVal = model.get(GRB.DoubleAttr.ObjVal);
-        for (int i = 0; i < columnPool.size(); i++) {
-            double num = x.get(i).get(GRB.DoubleAttr.X);
+        lPsol.objVal = lp.getObjValue();
+        collectModelColumns();
+        double[] values = lp.getValues(modelVars);
+        for (int h = 0; h < values.length; h++) {
+            int i = modelIndices[h];
+            double num = values[h];
             // columns whose value > 0 can be added in the lPsol
             // not all columns in columnPool need be added;
             if (num > Base.EPS) {
                 lPsol.xBlocks.add(columnPool.get(i));
                 lPsol.xValues.add(num);
+                lPsol.xIndices.add(i);
             }
         }
+        double[] yValues = lp.getValues(y);
         for (int i = 0; i < y.length; i++) {
-            if (y[i].get(GRB.DoubleAttr.X) > Base.EPS) {
+            if (yValues[i] > Base.EPS) {
                 lPsol.leftJobs.add(i);
-                lPsol.yValues.add(y[i].get(GRB.DoubleAttr.X));
-                lPsol.leftJobsProcessingTime += y[i].get(GRB.DoubleAttr.X) * instance.p[i];
+                lPsol.yValues.add(yValues[i]);
+                lPsol.leftJobsProcessingTime += yValues[i] * instance.p[i];
             }
         }
         return lPsol;
@@ -325,15 +858,20 @@ public class Master {
 
         boolean feasible;
 
-        model.optimize();
+        feasible = lp.optimize();
+        farkasDuals = feasible ? null : lp.getFarkasDuals();
 
         this.timeOnRMPSolve = Base.getTimeCost(s0);
 
-        feasible = (model.get(GRB.IntAttr.Status) == GRB.OPTIMAL);
+        if (feasible) {
+            ageColumns();
+        }
 
         node.timeOnRMPAddColumns += timeOnRMPAddColumns;
+        timeOnRMPAddColumns = 0; // charged to the node once
         node.timeOnRMPSolve += timeOnRMPSolve;
         node.cntRMPCall++;
+        node.numOfRMPIterations += lp.getIterationCount();
 
         if (Param.debug) {
             // String str = "-".repeat(100) + "\n";
@@ -351,9 +889,100 @@ public class Master {
         return feasible;
     }
 
+    /**
+     * the IP of the current node restricted to blocks (binary x) and binary y,
+     * only the solutions whose makespan < cutoff are searched
+     *
+     * @return the optimal solution, an empty solution if there is none better than cutoff,
+     * null if the IP is not solved to optimality
+     */
+    public Solution solveIntegerProgram(ArrayList<Block> blocks, double cutoff, double timeLimit) throws GRBException {
+        GRBModel ip = new GRBModel(getEnv());
+        try {
+            GRBVar[] xs = new GRBVar[blocks.size()];
+            GRBVar[] ys = new GRBVar[numJobs];
+            for (int k = 0; k < blocks.size(); k++) {
+                xs[k] = ip.addVar(0, 1, instance.T + instance.t, GRB.BINARY, "x_" + (k + 1));
+            }
+            for (int i = 0; i < numJobs; i++) {
+                double lb = node.yOne.contains(i) ? 1 : 0;
+                double ub = node.yZero.contains(i) ? 0 : 1;
+                ys[i] = ip.addVar(lb, ub, instance.p[i], GRB.BINARY, "y_" + (i + 1));
+            }
+            GRBLinExpr[] cover = new GRBLinExpr[numJobs];
+            for (int i = 0; i < numJobs; i++) {
+                cover[i] = new GRBLinExpr();
+                cover[i].addTerm(1, ys[i]);
+            }
+            GRBLinExpr numBlocks = new GRBLinExpr();
+            for (int k = 0; k < blocks.size(); k++) {
+                for (int job : blocks.get(k)) {
+                    cover[job].addTerm(1, xs[k]);
+                }
+                numBlocks.addTerm(1, xs[k]);
+            }
+            for (int i = 0; i < numJobs; i++) {
+                ip.addConstr(cover[i], GRB.GREATER_EQUAL, 1, "constraint1_" + (i + 1));
+            }
+            GRBLinExpr lastBlock = new GRBLinExpr();
+            for (int i = 0; i < numJobs; i++) {
+                lastBlock.addTerm(instance.p[i], ys[i]);
+            }
+            ip.addConstr(lastBlock, GRB.LESS_EQUAL, lp.getRHS(numJobs), "constraint2");
+            ip.addConstr(numBlocks, GRB.GREATER_EQUAL, node.lbNumBlocks, "constraint3");
+            ip.addConstr(numBlocks, GRB.LESS_EQUAL, node.ubNumBlocks, "constraint4");
+            if (timeLimit > 0) {
+                ip.set(GRB.DoubleParam.TimeLimit, timeLimit);
+            }
+            ip.set(GRB.DoubleParam.Cutoff, cutoff);
+            ip.optimize();
+
+            int status = ip.get(GRB.IntAttr.Status);
+            if (status == GRB.INFEASIBLE || status == GRB.CUTOFF) {
+                return new Solution();
+            }
+            if (status != GRB.OPTIMAL) {
+                return null;
+            }
+            Solution solution = new Solution();
+            double[] xValues = ip.get(GRB.DoubleAttr.X, xs);
+            for (int k = 0; k < blocks.size(); k++) {
+                if (xValues[k] > 0.5) {
+                    solution.add(blocks.get(k));
+                }
+            }
+            // a job covered twice is kept in the first block only
+            boolean[] covered = new boolean[numJobs];
+            for (int k = 0; k < solution.size(); k++) {
+                Block block = new Block();
+                for (int job : solution.get(k)) {
+                    if (!covered[job]) {
+                        covered[job] = true;
+                        block.add(job, instance);
+                    }
+                }
+                solution.set(k, block);
+            }
+            Block last = new Block();
+            double[] yValues = ip.get(GRB.DoubleAttr.X, ys);
+            for (int i = 0; i < numJobs; i++) {
+                if (yValues[i] > 0.5 && !covered[i]) {
+                    last.add(i, instance);
+                }
+            }
+            solution.add(last);
+            solution.computeMakespan(instance);
+            return solution;
+        } finally {
+            ip.dispose();
+        }
+    }
+
     public void end() throws GRBException {
-        model.dispose();
-        env.dispose();
+        lp.dispose();
+        if (env != null) {
+            env.dispose();
+        }
     }
 
 
@@ -29,6 +29,11 @@ public class Node {
     public int[][] andJobs; //  andItems[i] 代表可以索引到与job i 放在一起的job j 也包括 i
     public boolean[][] orJobs;  // job i和 job j不放在一起
     public BitSet removedJobs; // removed[i] 代表 job i 不会再参与之后的分支，i 已经被合并到别的里面去了
+    public boolean hasConflicts; // some orJobs[i][j] is true, the pricing problem is not a plain knapsack
+    int depth;
+    ColumnBranch columnBranch = ColumnBranch.NONE;
+    int branchA;
+    int branchB;
 
     public NodeStatus status;
     public LPsol lpSol;
@@ -42,6 +47,25 @@ public class Node {
     int cntRMPCall;
     double timeOnPP;
     int cntPPCall;
+    int numOfColumnsFromPool; // the inactive columns of the pool which priced out negative at this node
+    double timeOnEnumeration;
+    // tiered pricing: the calls which end in stage s, the time and the columns found in stage s
+    int[] cntPPStage = new int[PricingLabelSetting.NUM_OF_STAGES];
+    double[] timeOnPPStage = new double[PricingLabelSetting.NUM_OF_STAGES];
+    int[] numOfColumnsPPStage = new int[PricingLabelSetting.NUM_OF_STAGES];
+    // pricing portfolio: the calls won by each engine (first exhaustive answer) and their time
+    int[] cntPPWins = new int[PricingPortfolio.NUM_OF_ENGINES];
+    double[] timeOnPPWins = new double[PricingPortfolio.NUM_OF_ENGINES];
+    double lagrangianBound; // the best Lagrangian bound of column generation, -Double.MAX_VALUE if none
+    boolean stoppedByLagrangianBound; // column generation stopped before convergence
+    int cntMisprice; // dual smoothing: the pricing calls at a smoothed point without negative column under the duals
+    int numOfRMPIterations; // simplex iterations
+    int cntFarkasPricing; // the pricing rounds under the Farkas ray of an infeasible RMP
+    // the final basis of RMP (Master.saveBasis), the children start from it after a switch to another subtree
+    int[] basisColumns; // the pool indices of the columns in RMP which are not NONBASIC_LOWER
+    int[] basisColumnStatus;
+    int[] basisFixedStatus; // y, the artificial variables and the box
+    int[] basisRowStatus; // null if not saved
 
     int iter;
 
@@ -50,6 +74,7 @@ public class Node {
 
         this.parent = parent;
         this.nodeID = nodeID;
+        this.depth = parent.depth + 1;
 
         this.lbNumBlocks = parent.lbNumBlocks;
         this.ubNumBlocks = parent.ubNumBlocks;
@@ -60,6 +85,8 @@ public class Node {
             this.yZero.add(yIndex);
         } else if (!ySetZero && !yOne.contains(yIndex)){
             this.yOne.add(yIndex);
+            this.columnBranch = ColumnBranch.EXCLUDE;
+            this.branchA = yIndex;
         }
 
         this.andJobs = new int[nJobs][];
@@ -71,6 +98,7 @@ public class Node {
         Base.copyTo(parent.orJobs, orJobs);
 
         removedJobs = (BitSet) parent.removedJobs.clone();
+        this.hasConflicts = parent.hasConflicts;
 
         this.status = NodeStatus.UNSOLVED;
         this.lpSol = new LPsol();
@@ -81,6 +109,7 @@ public class Node {
         this.nJobs = parent.nJobs;
         this.parent = parent;
         this.nodeID = nodeID;
+        this.depth = parent.depth + 1;
 
         this.lbNumBlocks = lbNumOfBlocks;
         this.ubNumBlocks = ubNumOfBlocks;
@@ -100,6 +129,7 @@ public class Node {
         this.orJobs = new boolean[nJobs][nJobs];
         Base.copyTo(parent.orJobs, orJobs);
         removedJobs = (BitSet) parent.removedJobs.clone();
+        this.hasConflicts = parent.hasConflicts;
 
         this.status = NodeStatus.UNSOLVED;
         this.lb = parent.lb;
@@ -110,6 +140,7 @@ public class Node {
 
         this.parent = parent;
         this.nodeID = nodeID;
+        this.depth = parent.depth + 1;
 
         this.lbNumBlocks = parent.lbNumBlocks;
         this.ubNumBlocks = parent.ubNumBlocks;
@@ -142,9 +173,15 @@ public class Node {
                 }
             }
             removedJobs.set(b);
+            this.hasConflicts = parent.hasConflicts;
+            this.columnBranch = ColumnBranch.TOGETHER;
         } else {
             orJobs[a][b] = orJobs[b][a] = true;
+            this.hasConflicts = true;
+            this.columnBranch = ColumnBranch.APART;
         }
+        this.branchA = a;
+        this.branchB = b;
 
         // this.lpSol = new LPsol();
         this.lb = parent.lb;
@@ -156,6 +193,7 @@ public class Node {
         this.nJobs = nJobs;
         this.nodeID = nodeID;
         this.parent = parent;
+        this.depth = parent == null ? 0 : parent.depth + 1;
 
         this.lbNumBlocks = lbNumBlocks;
         this.ubNumBlocks = ubNumBlocks;
@@ -166,6 +204,21 @@ public class Node {
         this.andJobs = andJobs;
         this.orJobs = orJobs;
         this.removedJobs = removedJobs;
+        for (int i = 0; i < nJobs && !hasConflicts; i++) {
+            for (int j = 0; j < nJobs; j++) {
+                if (orJobs[i][j]) {
+                    this.hasConflicts = true;
+                    break;
+                }
+            }
+        }
+        boolean merged = false;
+        for (int i = 0; i < nJobs && !merged; i++) {
+            merged = !removedJobs.get(i) && andJobs[i].length > 1;
+        }
+        if (hasConflicts || merged) {
+            this.columnBranch = ColumnBranch.ANY;
+        }
 
         // this.lpSol = new LPsol();
         this.status = NodeStatus.UNSOLVED;
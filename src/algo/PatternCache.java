@@ -0,0 +1,132 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * the feasible patterns (sets of merged jobs) kept by the last label setting of the current node,
+ * packed like the job sets of LabelPool: pattern k is words [k * nWords, (k + 1) * nWords) of masks.
+ * The bits are jobs, not the positions of the label setting which may change with the duals.
+ * A new dual vector re-scores all of them in one pass over the words before any labeling
+ */
+class PatternCache {
+    int nJobs;
+    int nWords;
+    int capacity;
+    int size;
+
+    long[] masks;
+    double[] costs; // the reduced costs of the last score()
+    int[] order; // the negative patterns of the last score(), ASC cost
+    int[] labels; // buffer of fill()
+    double[] labelCosts;
+
+    PatternCache(int nJobs, int capacity) {
+        this.nJobs = nJobs;
+        this.nWords = Math.max(1, (nJobs + 63) >>> 6);
+        this.capacity = capacity;
+        this.masks = new long[capacity * nWords];
+        this.costs = new double[capacity];
+        this.order = new int[capacity];
+        this.labels = new int[64];
+        this.labelCosts = new double[64];
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * replace the patterns by the job sets of the labels stored in states, the cheapest ones if there are too many
+     *
+     * @param jobAt the job at each position of the labels
+     */
+    void fill(LabelPool pool, DominanceIndex states, int[] jobAt) {
+        int cnt = 0;
+        for (int job = 0; job < nJobs; job++) {
+            int n = states.size(job);
+            if (n == 0) {
+                continue;
+            }
+            if (labels.length < cnt + n) {
+                labels = Arrays.copyOf(labels, Math.max(cnt + n, 2 * labels.length));
+            }
+            cnt += states.labels(job, labels, cnt);
+        }
+        double threshold = Double.MAX_VALUE;
+        if (cnt > capacity) {
+            if (labelCosts.length < cnt) {
+                labelCosts = new double[labels.length];
+            }
+            for (int k = 0; k < cnt; k++) {
+                labelCosts[k] = pool.reducedCost[labels[k]];
+            }
+            Arrays.sort(labelCosts, 0, cnt);
+            threshold = labelCosts[capacity - 1];
+        }
+        size = 0;
+        for (int k = 0; k < cnt && size < capacity; k++) {
+            int label = labels[k];
+            if (pool.reducedCost[label] <= threshold) {
+                int offset = size * nWords;
+                Arrays.fill(masks, offset, offset + nWords, 0L);
+                for (int i = pool.containJob(label, 0); i >= 0; i = pool.containJob(label, i + 1)) {
+                    int job = jobAt[i];
+                    masks[offset + (job >>> 6)] |= 1L << job;
+                }
+                size++;
+            }
+        }
+    }
+
+    /**
+     * costs[k] = constant - sum of values over the jobs of pattern k,
+     * the limit cheapest patterns are kept sorted by insertion while scoring
+     *
+     * @return the number of patterns whose cost < -eps in order[0, ...), at most limit, in ASC order of cost
+     */
+    int score(double[] values, double constant, double eps, int limit) {
+        int cnt = 0;
+        for (int k = 0; k < size; k++) {
+            double cost = constant;
+            int offset = k * nWords;
+            for (int w = 0; w < nWords; w++) {
+                long word = masks[offset + w];
+                while (word != 0) {
+                    cost -= values[(w << 6) + Long.numberOfTrailingZeros(word)];
+                    word &= word - 1;
+                }
+            }
+            costs[k] = cost;
+            if (cost + eps >= 0 || limit <= 0 || (cnt == limit && cost >= costs[order[cnt - 1]])) {
+                continue;
+            }
+            int h = cnt < limit ? cnt++ : cnt - 1;
+            for (; h > 0 && costs[order[h - 1]] > cost; h--) {
+                order[h] = order[h - 1];
+            }
+            order[h] = k;
+        }
+        return cnt;
+    }
+
+    /**
+     * @return the first job >= from of pattern k, -1 if there is none
+     */
+    int job(int k, int from) {
+        if (from >= nJobs) {
+            return -1;
+        }
+        int offset = k * nWords;
+        int w = from >>> 6;
+        long word = masks[offset + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == nWords) {
+                return -1;
+            }
+            word = masks[offset + w];
+        }
+    }
+}
@@ -10,7 +10,7 @@ import java.util.ArrayList;
 /**
  * Solving model to solve the pricing problem
  */
-public class Pricing {
+public class Pricing implements PricingEngine {
     Instance instance;
     int nJobs;
     GRBEnv env;
@@ -22,6 +22,10 @@ public class Pricing {
     ArrayList<Block> newBlocks;
 
     Node node;
+    boolean optimal;
+    double reducedCostLB; // by the bound of the MIP, exact if optimal
+    volatile boolean cancelled;
+    boolean recordStatistics = true; // false in PricingPortfolio, which records its calls itself
 
     public Pricing(Instance instance) {
         this.instance = instance;
@@ -50,9 +54,32 @@ public class Pricing {
         this.constrBlock = model.addConstr(expr, GRB.LESS_EQUAL, instance.T, "constraint1");
         env.set(GRB.IntParam.Seed, Base.SEED);
         env.set(GRB.IntParam.Threads, Param.nThreads);
+        model.setCallback(new CancelCallback());
     }
 
-    public void set(Node node) throws GRBException {
+    /**
+     * model.terminate() is lost if setCancelled(true) comes between the check of cancelled and model.optimize(),
+     * so the MIP also polls the flag and aborts
+     */
+    private class CancelCallback extends GRBCallback {
+        @Override
+        protected void callback() {
+            if (cancelled) {
+                abort();
+            }
+        }
+    }
+
+    @Override
+    public void set(Node node) {
+        try {
+            setConstraints(node);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void setConstraints(Node node) throws GRBException {
         this.node = node;
         GRBConstr[] constrs = model.getConstrs();
         for (int i = 1; i < constrs.length; i++) {
@@ -84,6 +111,11 @@ public class Pricing {
             }
         }
 
+        // the jobs with y = 1 are not in any block
+        for (int i : node.yOne) {
+            model.addConstr(z[i], GRB.EQUAL, 0, "constraints4_" + (i + 1));
+        }
+
     }
 
     /**
@@ -101,8 +133,19 @@ public class Pricing {
         }
         model.setObjective(obj, GRB.MAXIMIZE);
         model.update();
+        optimal = false;
+        if (cancelled) {
+            return newBlocks;
+        }
         model.optimize();
         boolean feasible = false;
+        optimal = model.get(GRB.IntAttr.Status) == GRB.OPTIMAL;
+        if (optimal) {
+            reducedCostLB = instance.T + instance.t - dual[nJobs + 1] - dual[nJobs + 2] - model.get(GRB.DoubleAttr.ObjBound);
+        }
+        if (!optimal && model.get(GRB.IntAttr.SolCount) == 0) {
+            return newBlocks; // interrupted or time limit before a first solution
+        }
         if (model.get(GRB.IntAttr.Status) == GRB.OPTIMAL) {
             feasible = true;
         } else if (model.get(GRB.IntAttr.Status) == GRB.INFEASIBLE) {
@@ -148,6 +191,49 @@ public class Pricing {
         return !newBlocks.isEmpty();
     }
 
+    @Override
+    public void solve(double[] duals, long timeLimit) {
+        long s0 = System.currentTimeMillis();
+        try {
+            model.set(GRB.DoubleParam.TimeLimit, timeLimit > 0 ? timeLimit : GRB.INFINITY);
+            genColumn1(duals);
+        } catch (GRBException e) {
+            throw new RuntimeException(e);
+        }
+        if (recordStatistics) {
+            node.timeOnPP += Base.getTimeCost(s0);
+            node.cntPPCall++;
+        }
+    }
+
+    @Override
+    public boolean findNewBlocks() {
+        return findNewColumns();
+    }
+
+    @Override
+    public boolean isExhaustive() {
+        return optimal;
+    }
+
+    @Override
+    public double getMinReducedCost() {
+        return Math.min(0, reducedCostLB);
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+        if (cancelled) {
+            model.terminate();
+        }
+    }
+
+    @Override
+    public ArrayList<Block> getNewBlocks() {
+        return newBlocks;
+    }
+
     //
     // /**
     //  * dynamic programming(2-dp) to solve pricing problem
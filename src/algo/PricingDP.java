@@ -0,0 +1,249 @@
+package algo;
+
+import comn.Base;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * dynamic programming to solve the pricing problem of the nodes without conflict jobs,
+ * then the pricing problem is a 0/1 knapsack over capacity T of the merged jobs (andJobs).
+ * f[i][c]: max dual value of the first i items within capacity c, the items are the candidate merged jobs.
+ * The k best subsets are found by a best-first search backward over the table: a state decides the items
+ * in [i, m) and keeps capacity c, its priority value + f[i][c] is the best value of its completions (exact),
+ * so the complete states are popped in DESC order of value, each path being a distinct subset.
+ * The search stops after maxNumOfBlocks blocks or once the priority gives no negative reduced cost
+ */
+public class PricingDP implements PricingEngine {
+    Instance instance;
+    int nJobs;
+    int T;
+
+    Node node;
+
+    int[] mergedP;
+    double[] mergedDuals;
+    int[] items; // the candidate merged jobs in index order
+    int numOfItems;
+
+    double[] f; // f[i * (T + 1) + c], reused between two calls of solve()
+    // the states of the search: items[0, item) are still to decide, taken: whether items[item] was taken
+    int[] stateItem;
+    int[] stateCap;
+    double[] stateValue;
+    int[] stateParent;
+    boolean[] stateTaken;
+    double[] statePriority;
+    int numOfStates;
+    int[] heap; // max-heap of states by priority, the deeper state first on a tie
+    int heapSize;
+
+    int maxNumOfBlocks; // k
+    ArrayList<Block> newBlocks;
+    Block mostNegativeBlock;
+    double reducedCostUB;
+
+    double timeCost;
+
+    public PricingDP(Instance instance) {
+        this.instance = instance;
+        this.nJobs = instance.nJobs;
+        this.T = instance.T;
+        this.mergedP = new int[nJobs];
+        this.mergedDuals = new double[nJobs];
+        this.items = new int[nJobs];
+        this.f = new double[(nJobs + 1) * (T + 1)];
+        this.maxNumOfBlocks = 50;
+        this.newBlocks = new ArrayList<>();
+        allocateStates(1024);
+    }
+
+    @Override
+    public void set(Node node) {
+        this.node = node;
+    }
+
+    @Override
+    public void solve(double[] duals, long timeLimit) {
+        long s0 = System.currentTimeMillis();
+        newBlocks.clear();
+        mostNegativeBlock = null;
+        Arrays.fill(mergedP, 0);
+        Arrays.fill(mergedDuals, 0);
+        for (int i = 0; i < nJobs; i++) {
+            if (node.removedJobs.get(i)) {
+                continue;
+            }
+            for (int job : node.andJobs[i]) {
+                mergedP[i] += instance.p[job];
+                mergedDuals[i] += duals[job];
+            }
+        }
+        numOfItems = 0;
+        for (int i = 0; i < nJobs; i++) {
+            if (!node.yOne.contains(i) && !node.removedJobs.get(i) && mergedDuals[i] >= Base.EPS && mergedP[i] <= T) {
+                items[numOfItems++] = i;
+            }
+        }
+        fillTable();
+
+        double cost = instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2];
+        reducedCostUB = cost - f[numOfItems * (T + 1) + T];
+        search(cost);
+        timeCost = Base.getTimeCost(s0);
+        node.timeOnPP += timeCost;
+        node.cntPPCall++;
+    }
+
+    private void fillTable() {
+        int width = T + 1;
+        Arrays.fill(f, 0, width, 0);
+        for (int i = 0; i < numOfItems; i++) {
+            int row = i * width;
+            System.arraycopy(f, row, f, row + width, width);
+            int w = mergedP[items[i]];
+            double v = mergedDuals[items[i]];
+            for (int c = w; c <= T; c++) {
+                f[row + width + c] = Math.max(f[row + c], f[row + c - w] + v);
+            }
+        }
+    }
+
+    /**
+     * best-first search of the k best subsets whose reduced cost is negative
+     */
+    private void search(double cost) {
+        int width = T + 1;
+        numOfStates = 0;
+        heapSize = 0;
+        push(newState(numOfItems, T, 0, -1, false));
+        while (heapSize > 0 && newBlocks.size() < maxNumOfBlocks) {
+            int state = poll();
+            if (cost - statePriority[state] + Base.EPS >= 0) {
+                break;
+            }
+            int i = stateItem[state];
+            int c = stateCap[state];
+            double value = stateValue[state];
+            if (i == 0 || f[i * width + c] <= 0) { // complete: nothing more fits
+                if (value > 0) {
+                    addBlock(state);
+                }
+                continue;
+            }
+            int w = mergedP[items[i - 1]];
+            double v = mergedDuals[items[i - 1]];
+            if (w <= c && cost - (value + v + f[(i - 1) * width + c - w]) + Base.EPS < 0) {
+                push(newState(i - 1, c - w, value + v, state, true));
+            }
+            if (cost - (value + f[(i - 1) * width + c]) + Base.EPS < 0) {
+                push(newState(i - 1, c, value, state, false));
+            }
+        }
+    }
+
+    private void addBlock(int state) {
+        Block block = new Block();
+        for (int s = state; stateParent[s] >= 0; s = stateParent[s]) {
+            if (stateTaken[s]) {
+                for (int job : node.andJobs[items[stateItem[s]]]) {
+                    block.add(job, instance);
+                }
+            }
+        }
+        if (newBlocks.isEmpty()) {
+            mostNegativeBlock = block;
+        }
+        newBlocks.add(block);
+    }
+
+    private int newState(int item, int cap, double value, int parent, boolean taken) {
+        if (numOfStates == stateItem.length) {
+            allocateStates(2 * numOfStates);
+        }
+        int state = numOfStates++;
+        stateItem[state] = item;
+        stateCap[state] = cap;
+        stateValue[state] = value;
+        stateParent[state] = parent;
+        stateTaken[state] = taken;
+        statePriority[state] = value + f[item * (T + 1) + cap];
+        return state;
+    }
+
+    private void allocateStates(int capacity) {
+        stateItem = stateItem == null ? new int[capacity] : Arrays.copyOf(stateItem, capacity);
+        stateCap = stateCap == null ? new int[capacity] : Arrays.copyOf(stateCap, capacity);
+        stateValue = stateValue == null ? new double[capacity] : Arrays.copyOf(stateValue, capacity);
+        stateParent = stateParent == null ? new int[capacity] : Arrays.copyOf(stateParent, capacity);
+        stateTaken = stateTaken == null ? new boolean[capacity] : Arrays.copyOf(stateTaken, capacity);
+        statePriority = statePriority == null ? new double[capacity] : Arrays.copyOf(statePriority, capacity);
+        heap = heap == null ? new int[capacity] : Arrays.copyOf(heap, capacity);
+    }
+
+    /**
+     * @return true if state a is popped before state b
+     */
+    private boolean before(int a, int b) {
+        if (statePriority[a] != statePriority[b]) {
+            return statePriority[a] > statePriority[b];
+        }
+        return stateItem[a] < stateItem[b];
+    }
+
+    private void push(int state) {
+        int k = heapSize++;
+        while (k > 0) {
+            int parent = (k - 1) >>> 1;
+            if (!before(state, heap[parent])) {
+                break;
+            }
+            heap[k] = heap[parent];
+            k = parent;
+        }
+        heap[k] = state;
+    }
+
+    private int poll() {
+        int top = heap[0];
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            int k = 0;
+            int half = heapSize >>> 1;
+            while (k < half) {
+                int child = 2 * k + 1;
+                int right = child + 1;
+                if (right < heapSize && before(heap[right], heap[child])) {
+                    child = right;
+                }
+                if (!before(heap[child], last)) {
+                    break;
+                }
+                heap[k] = heap[child];
+                k = child;
+            }
+            heap[k] = last;
+        }
+        return top;
+    }
+
+    @Override
+    public boolean findNewBlocks() {
+        return !newBlocks.isEmpty();
+    }
+
+    @Override
+    public boolean isExhaustive() {
+        return true;
+    }
+
+    @Override
+    public double getMinReducedCost() {
+        return Math.min(0, reducedCostUB);
+    }
+
+    @Override
+    public ArrayList<Block> getNewBlocks() {
+        return newBlocks;
+    }
+}
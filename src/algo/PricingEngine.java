@@ -0,0 +1,55 @@
+package algo;
+
+import java.util.ArrayList;
+
+/**
+ * an algorithm to solve the pricing problem of a node
+ */
+public interface PricingEngine {
+    /**
+     * load the branching information of node
+     */
+    void set(Node node);
+
+    /**
+     * search the blocks with negative reduced cost
+     *
+     * @param duals     the dual values of RMP
+     * @param timeLimit seconds, 0 for no limit
+     */
+    void solve(double[] duals, long timeLimit);
+
+    boolean findNewBlocks();
+
+    /**
+     * @return false if the last call stopped on its budget (or a heuristic stage) and may miss negative blocks
+     */
+    boolean isExhaustive();
+
+    /**
+     * @return the min reduced cost of the valid blocks under the last duals, 0 if none is negative.
+     * Only a bound if isExhaustive(), and up to the EPS of pruning
+     */
+    double getMinReducedCost();
+
+    /**
+     * give the next calls a larger budget, after a round without columns which is not exhaustive
+     */
+    default void extendBudget() {
+    }
+
+    /**
+     * back to the initial budget, for a new node
+     */
+    default void resetBudget() {
+    }
+
+    /**
+     * true: a running solve() stops as soon as possible and the next calls return at once, not exhaustive.
+     * Called from another thread by PricingPortfolio, which sets it back to false before the next race
+     */
+    default void setCancelled(boolean cancelled) {
+    }
+
+    ArrayList<Block> getNewBlocks();
+}
@@ -3,8 +3,13 @@ package algo;
 import comn.Base;
 import comn.Param;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class PricingLabelSetting {
+public class PricingLabelSetting implements PricingEngine {
     Instance instance;
     int nJobs;
 
@@ -17,6 +22,19 @@ public class PricingLabelSetting {
 
     int[] mergedP; // get mergedDuration according to (a,b) branch information and p[]
     double[] mergedDuals; // get mergedValue according to (a,b) branch information and duals[]
+    /**
+     * the labels only extend to the later positions and the completion bounds are over them, so an order which puts
+     * the valuable jobs first fathoms far more labels. The jobs are re-sorted by jobOrder for each dual vector,
+     * all the arrays of the search are indexed by position: jobAt[k] is the job at position k, positionOf its inverse.
+     * jobP / jobDuals are mergedP / mergedDuals indexed by job
+     */
+    JobOrder jobOrder;
+    int[] jobAt;
+    int[] positionOf;
+    int[] jobP;
+    double[] jobDuals;
+    Integer[] orderBuffer;
+    boolean conflictRowsValid; // for the node and the positions
 
     double[] duals;
     /**
@@ -24,6 +42,7 @@ public class PricingLabelSetting {
      */
     SearchDirection searchDirection;
     int maxNumOfBlocks;
+    int nThreads;
     /* boolean useLSWithRelaxedDRBeforeExactLS;
     boolean useLSWithDSSR;
     boolean useTsp;
@@ -39,10 +58,25 @@ public class PricingLabelSetting {
     ArrayList<Block> newBlocks;
     Block mostNegativeBlock;
     double reducedCostUB;
+    double incumbentCost; // bidir: the min reduced cost of the half labels and their greedy completions (feasible blocks)
 
 
     long timeLimit;
-    long start;
+    /**
+     * budget of one call: wall clock (deadline on nanoTime, sampled every BUDGET_CHECK_INTERVAL checks)
+     * and number of labels. The search stops when it runs out of budget and returns the blocks found so far
+     */
+    double timeBudget; // seconds, <= 0 for no budget
+    long labelBudget; // <= 0 for no budget
+    double budgetFactor; // doubled after a round without columns which is not exhaustive
+    long deadline;
+    long labelLimit;
+    int budgetChecks;
+    boolean outOfBudget;
+    boolean truncated; // the search stopped before proving that no better block is missed
+    volatile boolean cancelled; // by PricingPortfolio, checked with the label count
+    boolean recordStatistics = true; // false in PricingPortfolio, which records its calls itself
+    static final int BUDGET_CHECK_INTERVAL = 1024;
     double timeCost;
     double timeOnLowerBound;
     double timeOnDominanceRule;
@@ -50,18 +84,132 @@ public class PricingLabelSetting {
     long numOfLabels;
     long numOfLabelsPrunedByLb;
     long numOfLabelsDominated;
+    long numOfCacheHits; // the calls answered by the pattern cache
+
+    /**
+     * pattern cache, a heuristic stage before the labeling: the job sets of the non-dominated labels of the last
+     * labeling of the node are re-scored under the new duals, and the negative ones are returned as a round which is
+     * not exhaustive. Unlike the column pool (only the blocks ever added to RMP), most of them are partial blocks
+     * which were never priced out. The labeling itself always runs in full, so the round proving the bound does too
+     */
+    boolean patternCacheFlag;
+    PatternCache patternCache;
+    static final int PATTERN_CACHE_SIZE = 1 << 14;
+
+    /**
+     * incremental pricing (exact): forward label setting runs partition by partition, partition f being the blocks
+     * whose first position is f. A partition searched in full keeps partitionLB[f] <= the reduced cost of its blocks
+     * under the duals of its epoch (the call which searched it): the min over its labels of the block cost, and over
+     * its pruned labels of their bound. Under new duals a block of partition f costs at least
+     * partitionLB[f] + (constant - epoch constant) - the sum of its dual increases since the epoch,
+     * which a continuous knapsack over capacity T - mergedP[f] bounds. The partitions where this stays >= 0
+     * are not relabelled. The positions must not move with the duals: INDEX order and no symmetry breaking
+     */
+    boolean incrementalFlag;
+    int[] partitionEpoch; // -1 if partition f has no bound
+    double[] partitionLB;
+    double[][] epochDuals; // mergedDuals of the candidates of the epoch, 0 for the others
+    double[] epochConstants;
+    int[] epochSizes; // the number of partitions whose bound comes from the epoch
+    long[] epochCalls; // the call of the epoch, the oldest one is dropped when all are used
+    double[][] epochIncreases; // the continuous knapsack of the dual increases since the epoch, per capacity
+    double[] increases;
+    double labelLB; // partitionLB of the partition being searched
+    long numOfCalls;
+    long numOfPartitionsSkipped;
+    long numOfPartitionsSearched;
+    static final int NUM_OF_EPOCHS = 8;
+
+    /**
+     * enumeration: all the blocks whose reduced cost <= enumerationThreshold, forward labeling without dominance
+     */
+    boolean enumerating;
+    double enumerationThreshold;
 
     boolean dominanceFlag;
     boolean fathomingFlag;
+    BoundMode boundMode;
+    boolean tieredFlag;
+    int restrictedBucketSize; // stage 1 of tiered pricing
+    int bucketLimit; // the max number of labels per (curJob, processingTime), Integer.MAX_VALUE when exact
+    static final int NUM_OF_STAGES = 3;
+
+    /**
+     * label storage, recycled between two calls of solve()
+     * states: the non-dominated labels of each job, bucketed by processing time
+     */
+    LabelPool pool;
+    LabelQueue funexplored;
+    LabelQueue bunexplored;
+    DominanceIndex fstates;
+    DominanceIndex bstates;
+    double[] fminCosts;
+    double[] bminCosts;
+    JoinIndex fjoin; // the labels of both directions which take part in the bidirectional join
+    JoinIndex bjoin;
+
+    boolean[] candidates; // the jobs which can be added to a new block
+    long[] greedyConflicts; // the jobs in conflict with the greedy completion
+    /**
+     * the masks of a word-parallel extension, packed like the job sets of LabelPool:
+     * conflictRows[j * nWords, (j + 1) * nWords) are the jobs in conflict with j (rebuilt per node),
+     * fitMasks[c * nWords, (c + 1) * nWords) are the candidates whose merged p <= c (rebuilt per dual vector)
+     */
+    int nWords;
+    long[] conflictRows;
+    long[] fitMasks;
+    /**
+     * symmetric jobs: the candidates with equal (mergedP, mergedDuals) and equal conflict rows form a type,
+     * whose jobs are chained in index order by prevOfType / nextOfType (-1 at both ends).
+     * The jobs of a type are only taken as a prefix of the chain (forward) or a suffix (backward),
+     * so a type of multiplicity m gives m + 1 labels instead of 2^m.
+     * laterOfType[j * nWords, ...) / earlierOfType[j * nWords, ...) are the jobs of the type after / before j,
+     * they leave the next jobs of a label once j is skipped
+     */
+    boolean symmetryFlag;
+    int[] prevOfType;
+    int[] nextOfType;
+    long[] laterOfType;
+    long[] earlierOfType;
+    Integer[] typeOrder;
+    CompletionBound completionBound; // rebuilt once per dual vector
+
+    /**
+     * parallel forward label setting: the blocks are partitioned by their first job,
+     * worker i solves the partitions i, i + nThreads, ... with its own labels and states
+     */
+    ForkJoinPool forkJoinPool;
+    PricingLabelSetting[] workers;
+    AtomicLong sharedUB; // the bits of the best reduced cost found by the workers
+    int[] firstJobs;
+    ArrayList<Block> allBlocks;
+    double[] blockCosts;
 
     enum SearchDirection {
         FORWARD, BACKWARD, BIDIR
     }
 
+    /**
+     * INDEX: the order of the file, P_DESC: DESC merged p,
+     * RATIO_DESC: DESC merged dual / merged p, DUAL_DESC: DESC merged dual. Ties in index order
+     */
+    enum JobOrder {
+        INDEX, P_DESC, RATIO_DESC, DUAL_DESC
+    }
+
     enum Direction {
         FORWARD, BACKWARD
     }
 
+    /**
+     * CONTINUOUS: continuous knapsack over the next jobs of the label
+     * DP: 0/1 knapsack table over the jobs after/before the label's current job
+     * BOTH: the O(1) DP lookup first, then the continuous bound
+     */
+    enum BoundMode {
+        CONTINUOUS, DP, BOTH
+    }
+
 
     public PricingLabelSetting(Instance instance) {
         this.instance = instance;
@@ -70,50 +218,319 @@ public class PricingLabelSetting {
         this.mergedP = new int[nJobs];
         this.mergedDuals = new double[nJobs];
         this.newBlocks = new ArrayList<>();
+        this.jobOrder = Param.jobOrder == null ? JobOrder.INDEX : JobOrder.valueOf(Param.jobOrder);
+        this.jobAt = new int[nJobs];
+        this.positionOf = new int[nJobs];
+        for (int i = 0; i < nJobs; i++) {
+            jobAt[i] = i;
+            positionOf[i] = i;
+        }
+        this.jobP = new int[nJobs];
+        this.jobDuals = new double[nJobs];
+        this.orderBuffer = new Integer[nJobs];
 
-        this.searchDirection = SearchDirection.FORWARD;
-        // this.searchDirection = SearchDirection.BIDIR;
+        this.searchDirection = Param.searchDirection == null ?
+                SearchDirection.FORWARD : SearchDirection.valueOf(Param.searchDirection);
         this.maxNumOfBlocks = 50; // 这个可以替换 比如32等等
-        this.dominanceFlag = true;
-        this.fathomingFlag = true;
+        this.dominanceFlag = Param.dominanceFlag;
+        this.fathomingFlag = Param.fathomingFlag;
+        this.boundMode = BoundMode.BOTH;
+        this.tieredFlag = Param.tieredPricingFlag;
+        this.restrictedBucketSize = 2;
+        this.bucketLimit = Integer.MAX_VALUE;
+
+        this.pool = new LabelPool(nJobs, 1 << 12);
+        this.funexplored = new LabelQueue(pool, 1 << 12);
+        this.bunexplored = new LabelQueue(pool, 1 << 12);
+        this.fstates = new DominanceIndex(pool, nJobs, instance.T);
+        this.bstates = new DominanceIndex(pool, nJobs, instance.T);
+        this.fminCosts = new double[nJobs];
+        this.bminCosts = new double[nJobs];
+        this.candidates = new boolean[nJobs];
+        this.nWords = pool.nWords;
+        this.greedyConflicts = new long[nWords];
+        this.conflictRows = new long[nJobs * nWords];
+        this.fitMasks = new long[(instance.T + 1) * nWords];
+        this.symmetryFlag = Param.symmetryFlag;
+        this.prevOfType = new int[nJobs];
+        this.nextOfType = new int[nJobs];
+        this.laterOfType = new long[nJobs * nWords];
+        this.earlierOfType = new long[nJobs * nWords];
+        this.typeOrder = new Integer[nJobs];
+        this.patternCacheFlag = Param.patternCacheFlag;
+        this.patternCache = new PatternCache(nJobs, patternCacheFlag ? PATTERN_CACHE_SIZE : 0);
+        this.completionBound = new CompletionBound(nJobs, instance.T);
+        this.incrementalFlag = Param.incrementalPricingFlag && jobOrder == JobOrder.INDEX && !symmetryFlag;
+        if (incrementalFlag) {
+            this.partitionEpoch = new int[nJobs];
+            Arrays.fill(partitionEpoch, -1);
+            this.partitionLB = new double[nJobs];
+            this.epochDuals = new double[NUM_OF_EPOCHS][nJobs];
+            this.epochConstants = new double[NUM_OF_EPOCHS];
+            this.epochSizes = new int[NUM_OF_EPOCHS];
+            this.epochCalls = new long[NUM_OF_EPOCHS];
+            this.epochIncreases = new double[NUM_OF_EPOCHS][instance.T + 1];
+            this.increases = new double[nJobs];
+        }
+        this.fjoin = new JoinIndex(pool, instance.T);
+        this.bjoin = new JoinIndex(pool, instance.T);
+        this.nThreads = Math.max(1, Param.nThreads);
+        this.timeBudget = Param.pricingTimeBudget;
+        this.labelBudget = Param.pricingLabelBudget;
+        this.budgetFactor = 1;
     }
 
+    /**
+     * a worker of the parallel forward label setting,
+     * shares the data prepared by owner for each dual vector (read only) and has its own labels and states
+     */
+    private PricingLabelSetting(PricingLabelSetting owner) {
+        this.instance = owner.instance;
+        this.nJobs = owner.nJobs;
+
+        this.mergedP = owner.mergedP;
+        this.mergedDuals = owner.mergedDuals;
+        this.jobAt = owner.jobAt;
+        this.candidates = owner.candidates;
+        this.completionBound = owner.completionBound;
+        this.nWords = owner.nWords;
+        this.conflictRows = owner.conflictRows;
+        this.fitMasks = owner.fitMasks;
+        this.symmetryFlag = owner.symmetryFlag;
+        this.prevOfType = owner.prevOfType;
+        this.nextOfType = owner.nextOfType;
+        this.laterOfType = owner.laterOfType;
+        this.earlierOfType = owner.earlierOfType;
+        this.cancelled = owner.cancelled;
+        this.newBlocks = new ArrayList<>();
+
+        this.searchDirection = SearchDirection.FORWARD;
+        this.maxNumOfBlocks = owner.maxNumOfBlocks;
+        this.dominanceFlag = owner.dominanceFlag;
+        this.fathomingFlag = owner.fathomingFlag;
+        this.boundMode = owner.boundMode;
+        this.bucketLimit = Integer.MAX_VALUE;
+        this.nThreads = 1;
+
+        this.pool = new LabelPool(nJobs, 1 << 12);
+        this.funexplored = new LabelQueue(pool, 1 << 12);
+        this.fstates = new DominanceIndex(pool, nJobs, instance.T);
+        this.fminCosts = new double[nJobs];
+    }
+
+    @Override
     public void set(Node node) {
         this.node = node;
         this.yOne = node.yOne;
         this.andJobs = node.andJobs;
         this.orJobs = node.orJobs;
         this.removedJobs = node.removedJobs;
+        conflictRowsValid = false;
+        patternCache.clear(); // the patterns of another node may be invalid
+        if (incrementalFlag) {
+            Arrays.fill(partitionEpoch, -1);
+            Arrays.fill(epochSizes, 0);
+        }
     }
 
+    private void buildConflictRows() {
+        Arrays.fill(conflictRows, 0L);
+        if (!node.hasConflicts) {
+            return;
+        }
+        for (int k = 0; k < nJobs; k++) {
+            boolean[] row = orJobs[jobAt[k]];
+            int offset = k * nWords;
+            for (int j = 0; j < nJobs; j++) {
+                if (row[j]) {
+                    int position = positionOf[j];
+                    conflictRows[offset + (position >>> 6)] |= 1L << position;
+                }
+            }
+        }
+    }
+
+    /**
+     * re-sort jobAt by jobOrder, the conflict rows are rebuilt if a job moves
+     */
+    private void sortJobs() {
+        if (jobOrder != JobOrder.INDEX) {
+            for (int i = 0; i < nJobs; i++) {
+                orderBuffer[i] = i;
+            }
+            Comparator<Integer> key = switch (jobOrder) {
+                case P_DESC -> Comparator.comparingInt(job -> -jobP[job]);
+                case RATIO_DESC -> Comparator.comparingDouble(job -> jobP[job] > 0 ? -jobDuals[job] / jobP[job] : 0);
+                default -> Comparator.comparingDouble(job -> -jobDuals[job]);
+            };
+            Arrays.sort(orderBuffer, key); // stable
+            for (int k = 0; k < nJobs; k++) {
+                int job = orderBuffer[k];
+                if (jobAt[k] != job) {
+                    jobAt[k] = job;
+                    positionOf[job] = k;
+                    conflictRowsValid = false;
+                }
+            }
+        }
+        if (!conflictRowsValid) {
+            buildConflictRows();
+            conflictRowsValid = true;
+        }
+    }
+
+    /**
+     * fitMasks[c] = fitMasks[c - 1] | the candidates whose merged p == c
+     */
+    private void buildFitMasks() {
+        Arrays.fill(fitMasks, 0L);
+        for (int i = 0; i < nJobs; i++) {
+            if (candidates[i] && mergedP[i] <= instance.T) {
+                fitMasks[mergedP[i] * nWords + (i >>> 6)] |= 1L << i;
+            }
+        }
+        for (int c = 1; c <= instance.T; c++) {
+            int offset = c * nWords;
+            for (int w = 0; w < nWords; w++) {
+                fitMasks[offset + w] |= fitMasks[offset - nWords + w];
+            }
+        }
+    }
+
+    /**
+     * chain the candidates of each type in index order, the duals have to be exactly equal
+     */
+    private void buildTypes() {
+        Arrays.fill(prevOfType, -1);
+        Arrays.fill(nextOfType, -1);
+        if (!symmetryFlag) {
+            return;
+        }
+        int size = 0;
+        for (int i = 0; i < nJobs; i++) {
+            if (candidates[i] && mergedP[i] <= instance.T) {
+                typeOrder[size++] = i;
+            }
+        }
+        Arrays.sort(typeOrder, 0, size, (a, b) -> mergedP[a] != mergedP[b] ? Integer.compare(mergedP[a], mergedP[b])
+                : mergedDuals[a] != mergedDuals[b] ? Double.compare(mergedDuals[a], mergedDuals[b])
+                : Integer.compare(a, b));
+        for (int k = 0; k < size; ) {
+            int end = k + 1;
+            while (end < size && mergedP[typeOrder[end]] == mergedP[typeOrder[k]]
+                    && mergedDuals[typeOrder[end]] == mergedDuals[typeOrder[k]]) {
+                end++;
+            }
+            // [k, end) have the same (mergedP, mergedDuals) in index order, split them by conflict rows
+            for (int a = k; a < end; a++) {
+                int job = typeOrder[a];
+                if (prevOfType[job] >= 0) {
+                    continue;
+                }
+                int last = job;
+                for (int b = a + 1; b < end; b++) {
+                    int other = typeOrder[b];
+                    if (prevOfType[other] < 0 && sameConflicts(job, other)) {
+                        nextOfType[last] = other;
+                        prevOfType[other] = last;
+                        last = other;
+                    }
+                }
+                if (last != job) {
+                    chainMasks(job);
+                }
+            }
+            k = end;
+        }
+    }
+
+    private boolean sameConflicts(int a, int b) {
+        for (int w = 0; w < nWords; w++) {
+            if (conflictRows[a * nWords + w] != conflictRows[b * nWords + w]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void chainMasks(int first) {
+        int last = first;
+        Arrays.fill(earlierOfType, first * nWords, (first + 1) * nWords, 0L);
+        for (int j = nextOfType[first]; j >= 0; j = nextOfType[j]) {
+            System.arraycopy(earlierOfType, last * nWords, earlierOfType, j * nWords, nWords);
+            earlierOfType[j * nWords + (last >>> 6)] |= 1L << last;
+            last = j;
+        }
+        Arrays.fill(laterOfType, last * nWords, (last + 1) * nWords, 0L);
+        for (int j = prevOfType[last]; j >= 0; last = j, j = prevOfType[j]) {
+            System.arraycopy(laterOfType, last * nWords, laterOfType, j * nWords, nWords);
+            laterOfType[j * nWords + (last >>> 6)] |= 1L << last;
+        }
+    }
+
+    /**
+     * BIDIR only breaks the symmetry of the forward half, the joined blocks are then the prefixes of the types
+     * which are split between both halves
+     */
+    private boolean breaksSymmetry(Direction dir) {
+        if (!symmetryFlag) {
+            return false;
+        }
+        return dir == Direction.FORWARD ?
+                searchDirection != SearchDirection.BACKWARD : searchDirection == SearchDirection.BACKWARD;
+    }
+
+    @Override
     public void solve(double[] duals, long timeLimit) {
         this.duals = duals;
         this.timeCost = 0;
         this.timeOnLowerBound = 0;
         this.timeOnDominanceRule = 0;
         this.timeLimit = timeLimit;
+        setBudget();
 
         newBlocks.clear();
+        pool.clear();
         this.mostNegativeBlock = null;
         this.reducedCostUB = 0;
-        Arrays.fill(mergedP, 0);
-        Arrays.fill(mergedDuals, 0); // 初始化都为0 被合并到别的里面的job就不会被更新，值就是0
+        this.incumbentCost = Double.MAX_VALUE;
+        Arrays.fill(jobP, 0);
+        Arrays.fill(jobDuals, 0); // 初始化都为0 被合并到别的里面的job就不会被更新，值就是0
         for (int i = 0; i < andJobs.length; i++) {
             if (removedJobs.get(i)) {
                 continue;
             }
             for (int job : andJobs[i]) {
-                this.mergedP[i] += instance.p[job];
-                this.mergedDuals[i] += duals[job];
+                this.jobP[i] += instance.p[job];
+                this.jobDuals[i] += duals[job];
             }
         }
+        sortJobs();
+        for (int k = 0; k < nJobs; k++) {
+            int i = jobAt[k];
+            mergedP[k] = jobP[i];
+            mergedDuals[k] = jobDuals[i];
+            candidates[k] = !yOne.contains(i) && !removedJobs.get(i) && (mergedDuals[k] >= Base.EPS || enumerating);
+        }
         long s0 = System.currentTimeMillis();
-
-        // runHeurisitics();
-        runLabelSetting();
+        if (patternCacheFlag && priceCachedPatterns()) {
+            numOfCacheHits++;
+            truncated = true; // a heuristic round, the labels are not searched
+        } else {
+            completionBound.set(mergedP, mergedDuals, candidates);
+            buildFitMasks();
+            buildTypes();
+            if (tieredFlag) {
+                runTieredPricing();
+            } else {
+                runLabelSetting();
+            }
+        }
         timeCost = Base.getTimeCost(s0);
-        node.timeOnPP += timeCost;
-        node.cntPPCall++;
+        if (recordStatistics) {
+            node.timeOnPP += timeCost;
+            node.cntPPCall++;
+        }
         // if (Param.displayLevel >= 4) {
         //     String str = String.format("PP:  node %d, RMP %d, PP %d | %d | %.3f, %.3f, %.3f",
         //             node.nodeID, node.cntRMPCall, node.cntPPCall, newBlocks.size(), timeCost, timeOnLowerBound, timeOnDominanceRule);
@@ -121,181 +538,587 @@ public class PricingLabelSetting {
         // }
     }
 
-    private void runHeurisitics() {
-        ArrayList<Integer> remainJobs = new ArrayList<>();
-        for (int i = 0; i < nJobs; i++) {
-            if (yOne.contains(i)) {
-                continue;
-            }
-            if (removedJobs.get(i)) {
-                continue;
-            }
-            remainJobs.add(i);
+    private void setBudget() {
+        double seconds = timeBudget > 0 ? timeBudget * budgetFactor : 0;
+        if (timeLimit > 0) {
+            seconds = seconds > 0 ? Math.min(seconds, timeLimit) : timeLimit;
         }
-        Collections.sort(remainJobs, Comparator.comparing(job -> -mergedDuals[job]/mergedP[job]));
+        deadline = seconds > 0 ? System.nanoTime() + (long) (seconds * 1e9) : Long.MAX_VALUE;
+        labelLimit = labelBudget > 0 ? numOfLabels + (long) (labelBudget * budgetFactor) : Long.MAX_VALUE;
+        budgetChecks = 0;
+        outOfBudget = false;
+        truncated = false;
+    }
+
+    /**
+     * @return true if the search has to stop, the label count and cancelled are checked every time, the clock only sampled
+     */
+    private boolean budgetIsOut() {
+        if (!outOfBudget && (numOfLabels >= labelLimit || cancelled
+                || (++budgetChecks % BUDGET_CHECK_INTERVAL == 0 && System.nanoTime() > deadline))) {
+            outOfBudget = true;
+        }
+        return outOfBudget;
+    }
 
-        BitSet colSize = new BitSet();
-        Block initialBlock = new Block();
-        this.newBlocks.add(initialBlock);
-        colSize.set(0);
-        for (Integer job : remainJobs) {
-            boolean packed = false;
+    @Override
+    public boolean isExhaustive() {
+        return !outOfBudget && !truncated;
+    }
 
-            for (int i = colSize.nextSetBit(0); i >= 0 && !packed; i = colSize.nextSetBit(i + 1)) {
-                if (newBlocks.get(i).canPackItem(instance, job)) {
-                    newBlocks.get(i).add(job, instance);
-                    packed = true;
+    /**
+     * enumerate all the valid blocks whose reduced cost <= threshold under duals, within the budget of one call
+     *
+     * @return null if there are more than maxNumOfColumns of them or the budget runs out
+     */
+    public ArrayList<Block> enumerate(double[] duals, double threshold, int maxNumOfColumns) {
+        boolean dominance = dominanceFlag;
+        boolean tiered = tieredFlag;
+        boolean symmetry = symmetryFlag;
+        boolean cached = patternCacheFlag;
+        SearchDirection direction = searchDirection;
+        int threads = nThreads;
+        int max = maxNumOfBlocks;
+        // the symmetric blocks are different columns of the IP, and the dominated labels are blocks as well
+        dominanceFlag = false;
+        tieredFlag = false;
+        symmetryFlag = false;
+        patternCacheFlag = false;
+        searchDirection = SearchDirection.FORWARD;
+        nThreads = 1;
+        maxNumOfBlocks = maxNumOfColumns;
+        enumerating = true;
+        enumerationThreshold = threshold;
+
+        solve(duals, timeLimit);
+        boolean complete = isExhaustive() && newBlocks.size() <= maxNumOfColumns;
+
+        enumerating = false;
+        dominanceFlag = dominance;
+        tieredFlag = tiered;
+        symmetryFlag = symmetry;
+        patternCacheFlag = cached;
+        searchDirection = direction;
+        nThreads = threads;
+        maxNumOfBlocks = max;
+        return complete ? new ArrayList<>(newBlocks) : null;
+    }
 
-                    if (newBlocks.get(i).noMoreToPack(instance)) {
-                        colSize.clear(i);
-                    }
+    @Override
+    public void extendBudget() {
+        budgetFactor *= 2;
+    }
+
+    @Override
+    public void resetBudget() {
+        budgetFactor = 1;
+    }
+
+    /**
+     * stage 0: greedy packing of the merged jobs (runHeurisitics)
+     * stage 1: restricted label setting, at most restrictedBucketSize labels per (curJob, processingTime)
+     * stage 2: exact label setting
+     * a stage only runs if the previous ones find no block with negative reduced cost
+     */
+    private void runTieredPricing() {
+        int stage = 0;
+        for (; stage < NUM_OF_STAGES; stage++) {
+            long s0 = System.currentTimeMillis();
+            pool.clear();
+            incumbentCost = Double.MAX_VALUE;
+            switch (stage) {
+                case 0 -> runHeurisitics();
+                case 1 -> {
+                    bucketLimit = restrictedBucketSize;
+                    runLabelSetting();
+                    bucketLimit = Integer.MAX_VALUE;
                 }
+                default -> runLabelSetting();
             }
+            if (recordStatistics) {
+                node.timeOnPPStage[stage] += Base.getTimeCost(s0);
+                node.numOfColumnsPPStage[stage] += newBlocks.size();
+            }
+            if (!newBlocks.isEmpty()) {
+                truncated |= stage < NUM_OF_STAGES - 1; // the heuristic stages prove nothing
+                break;
+            }
+        }
+        if (recordStatistics) {
+            node.cntPPStage[Math.min(stage, NUM_OF_STAGES - 1)]++;
+        }
+    }
 
-            if (!packed) {
-                Block newBlock = new Block();
-                newBlock.add(job, instance);
-                newBlocks.add(newBlock);
-                colSize.set(newBlocks.size() - 1);
+    /**
+     * first fit of the merged jobs in DESC order of dual / p, the bins are blocks without conflicts
+     */
+    private void runHeurisitics() {
+        ArrayList<Integer> remainJobs = new ArrayList<>();
+        for (int i = 0; i < nJobs; i++) {
+            if (candidates[i] && mergedP[i] <= instance.T) {
+                remainJobs.add(i);
+            }
+        }
+        Collections.sort(remainJobs, Comparator.comparing(job -> -mergedDuals[job] / mergedP[job]));
+
+        ArrayList<ArrayList<Integer>> bins = new ArrayList<>();
+        ArrayList<Integer> loads = new ArrayList<>();
+        ArrayList<long[]> binConflicts = new ArrayList<>(); // the jobs in conflict with the bin
+        for (int job : remainJobs) {
+            int b = 0;
+            for (; b < bins.size(); b++) {
+                if (loads.get(b) + mergedP[job] <= instance.T
+                        && (binConflicts.get(b)[job >>> 6] & (1L << job)) == 0) {
+                    break;
+                }
+            }
+            if (b == bins.size()) {
+                bins.add(new ArrayList<>());
+                loads.add(0);
+                binConflicts.add(new long[nWords]);
+            }
+            bins.get(b).add(job);
+            loads.set(b, loads.get(b) + mergedP[job]);
+            long[] conflicts = binConflicts.get(b);
+            for (int w = 0; w < nWords; w++) {
+                conflicts[w] |= conflictRows[job * nWords + w];
             }
         }
 
-        Iterator<Block> iterator = newBlocks.iterator();
-        while (iterator.hasNext()) {
-            Block block = iterator.next();
+        for (ArrayList<Integer> bin : bins) {
             double reducedCost = instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2];
-            for (int a : block) {
+            for (int a : bin) {
                 reducedCost -= mergedDuals[a];
             }
             if (reducedCost + Base.EPS >= 0) {
-                iterator.remove();
-            } else {
-                reducedCostUB = Math.min(reducedCost, reducedCostUB);
+                continue;
+            }
+            Block block = new Block();
+            for (int a : bin) {
+                for (int j : andJobs[jobAt[a]]) {
+                    block.add(j, instance);
+                }
+            }
+            newBlocks.add(block);
+            if (reducedCost < reducedCostUB) {
+                reducedCostUB = reducedCost;
+                mostNegativeBlock = block;
             }
         }
     }
 
     private void runLabelSetting() {
+        boolean incremental = incrementalFlag && !enumerating && bucketLimit == Integer.MAX_VALUE;
         switch (searchDirection) {
-            case FORWARD -> forwardLabelSetting();
+            case FORWARD -> {
+                if (nThreads > 1) {
+                    parallelForwardLabelSetting();
+                } else if (incremental) {
+                    incrementalForwardLabelSetting();
+                } else {
+                    forwardLabelSetting();
+                }
+            }
             case BACKWARD -> backwardLabelSetting();
             case BIDIR -> bidirLabelSetting();
         }
+        // the states of a partitioned search only hold its last partition
+        if (patternCacheFlag && nThreads == 1 && !(incremental && searchDirection == SearchDirection.FORWARD)) {
+            patternCache.fill(pool, searchDirection == SearchDirection.BACKWARD ? bstates : fstates, jobAt);
+        }
+    }
+
+    /**
+     * @return true if some cached patterns have negative reduced costs, the best of them are the new blocks
+     */
+    private boolean priceCachedPatterns() {
+        double constant = instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2];
+        int cnt = patternCache.score(jobDuals, constant, Base.EPS, Math.min(maxNumOfBlocks, patternCache.capacity));
+        for (int k = 0; k < cnt; k++) {
+            int pattern = patternCache.order[k];
+            Block block = new Block();
+            for (int i = patternCache.job(pattern, 0); i >= 0; i = patternCache.job(pattern, i + 1)) {
+                for (int j : andJobs[i]) {
+                    block.add(j, instance);
+                }
+            }
+            newBlocks.add(block);
+            if (k == 0) {
+                reducedCostUB = patternCache.costs[pattern];
+                mostNegativeBlock = block;
+            }
+        }
+        return cnt > 0;
     }
 
 
 
     private void forwardLabelSetting() {
-        this.start = System.currentTimeMillis();
-        PriorityQueue<Label> unexplored = new PriorityQueue<>(Comparator.comparing(label -> label.reducedCost));
-        ArrayList<Label>[] states = new ArrayList[nJobs];
-        double[] minCost = new double[nJobs];
-        for (int i = 0; i < nJobs; i++) {
-            if (removedJobs.get(i)) {
+        searchForward(-1);
+    }
+
+    /**
+     * the partitions are searched in position order with the reduced cost bound of the previous ones,
+     * those whose bound proves that they have no negative block are skipped
+     */
+    private void incrementalForwardLabelSetting() {
+        numOfCalls++;
+        double constant = instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2];
+        for (int e = 0; e < NUM_OF_EPOCHS; e++) {
+            if (epochSizes[e] > 0) {
+                boundIncreases(e);
+            }
+        }
+        int epoch = newEpoch(constant);
+        for (int f = 0; f < nJobs; f++) {
+            if (!candidates[f] || mergedP[f] > instance.T) {
                 continue;
             }
-            states[i] = new ArrayList<>();
+            if (budgetIsOut() || newBlocks.size() > maxNumOfBlocks) {
+                truncated = true; // the bounds of the partitions left are kept
+                break;
+            }
+            int e = partitionEpoch[f];
+            if (e >= 0) {
+                double increase = Math.max(0, mergedDuals[f] - epochDuals[e][f]);
+                double bound = partitionLB[f] + constant - epochConstants[e] - increase
+                        - epochIncreases[e][instance.T - mergedP[f]];
+                if (bound + Base.EPS >= 0) {
+                    numOfPartitionsSkipped++;
+                    continue;
+                }
+                epochSizes[e]--;
+                partitionEpoch[f] = -1;
+            }
+            numOfPartitionsSearched++;
+            labelLB = Double.MAX_VALUE;
+            searchForward(f);
+            if (funexplored.isEmpty() && !outOfBudget) {
+                partitionEpoch[f] = epoch;
+                partitionLB[f] = labelLB;
+                epochSizes[epoch]++;
+            }
+        }
+    }
+
+    /**
+     * @return the epoch of the current duals, in a free slot or in that of the oldest epoch whose partitions lose their bound
+     */
+    private int newEpoch(double constant) {
+        int epoch = 0;
+        for (int e = 0; e < NUM_OF_EPOCHS; e++) {
+            if (epochSizes[e] == 0) {
+                epoch = e;
+                break;
+            }
+            if (epochCalls[e] < epochCalls[epoch]) {
+                epoch = e;
+            }
+        }
+        if (epochSizes[epoch] > 0) {
+            for (int f = 0; f < nJobs; f++) {
+                if (partitionEpoch[f] == epoch) {
+                    partitionEpoch[f] = -1;
+                }
+            }
+            epochSizes[epoch] = 0;
+        }
+        for (int k = 0; k < nJobs; k++) {
+            epochDuals[epoch][k] = candidates[k] ? mergedDuals[k] : 0;
+        }
+        epochConstants[epoch] = constant;
+        epochCalls[epoch] = numOfCalls;
+        return epoch;
+    }
+
+    /**
+     * epochIncreases[e][c]: continuous knapsack over capacity c of the dual increases of the candidates since epoch e
+     */
+    private void boundIncreases(int e) {
+        int size = 0;
+        for (int k = 0; k < nJobs; k++) {
+            if (candidates[k] && mergedP[k] <= instance.T && mergedDuals[k] - epochDuals[e][k] > 0) {
+                increases[k] = mergedDuals[k] - epochDuals[e][k];
+                orderBuffer[size++] = k;
+            }
         }
+        Arrays.sort(orderBuffer, 0, size, Comparator.comparingDouble(k -> -increases[k] / mergedP[k]));
+        double[] bound = epochIncreases[e];
+        int k = 0;
+        int weight = 0; // of the items before k
+        double value = 0;
+        for (int c = 0; c <= instance.T; c++) {
+            while (k < size && weight + mergedP[orderBuffer[k]] <= c) {
+                weight += mergedP[orderBuffer[k]];
+                value += increases[orderBuffer[k]];
+                k++;
+            }
+            bound[c] = k < size ? value + (c - weight) * increases[orderBuffer[k]] / mergedP[orderBuffer[k]] : value;
+        }
+    }
+
+    /**
+     * @param firstJob the first job of all the blocks, -1 if it is free
+     */
+    private void searchForward(int firstJob) {
+        LabelQueue unexplored = funexplored;
+        unexplored.clear();
+        fstates.clear(mergedDuals);
+        double[] minCost = fminCosts;
         Arrays.fill(minCost, Integer.MAX_VALUE);
         /*
         crate a initial label
          */
-        createInitialLabel(unexplored, Direction.FORWARD);
+        int initialLabel = createInitialLabel(Direction.FORWARD);
+        if (firstJob >= 0) {
+            extendTo(unexplored, fstates, minCost, initialLabel, firstJob, Direction.FORWARD);
+        } else {
+            unexplored.add(initialLabel);
+        }
         /**
          * start extend tree
          */
-        while (!timeIsOut() && !unexplored.isEmpty() && newBlocks.size() <= maxNumOfBlocks) {
-            Label label = unexplored.poll();
-            if (label.dominated) {
+        while (!budgetIsOut() && !unexplored.isEmpty() && newBlocks.size() <= maxNumOfBlocks) {
+            int label = unexplored.poll();
+            if (pool.dominated[label]) {
                 continue;
             }
-            extend(unexplored, states, minCost, label, Direction.FORWARD);
+            labelLB = Math.min(labelLB, pool.reducedCost[label]);
+            extend(unexplored, fstates, minCost, label, Direction.FORWARD);
             addEnd(label, Direction.FORWARD);
         }
+        truncated |= !unexplored.isEmpty();
 
     }
 
-    private void backwardLabelSetting() {
+    /**
+     * the partitions are solved in waves of nThreads, the workers of a wave fathom with the best reduced cost
+     * published by the previous waves, so newBlocks only depends on the dual values and nThreads
+     */
+    private void parallelForwardLabelSetting() {
+        if (workers == null) {
+            forkJoinPool = new ForkJoinPool(nThreads);
+            workers = new PricingLabelSetting[nThreads];
+            for (int i = 0; i < nThreads; i++) {
+                workers[i] = new PricingLabelSetting(this);
+            }
+            sharedUB = new AtomicLong();
+            firstJobs = new int[nJobs];
+            allBlocks = new ArrayList<>();
+            blockCosts = new double[16];
+        }
+        for (PricingLabelSetting worker : workers) {
+            worker.node = node;
+            worker.yOne = yOne;
+            worker.andJobs = andJobs;
+            worker.orJobs = orJobs;
+            worker.removedJobs = removedJobs;
+            worker.duals = duals;
+            worker.deadline = deadline;
+            worker.bucketLimit = bucketLimit;
+        }
+        int numOfPartitions = 0;
+        for (int i = 0; i < nJobs; i++) {
+            if (candidates[i] && mergedP[i] <= instance.T) {
+                firstJobs[numOfPartitions++] = i;
+            }
+        }
+        // seed the bound with a greedy block, the workers keep the blocks which are not worse than it
+        completeGreedily(createInitialLabel(Direction.FORWARD), Direction.FORWARD);
+        sharedUB.set(Double.doubleToLongBits(Math.min(0, incumbentCost + 2 * Base.EPS)));
+        allBlocks.clear();
+        List<Callable<Void>> tasks = new ArrayList<>(nThreads);
+        for (int wave = 0; wave < numOfPartitions; wave += nThreads) {
+            if (outOfBudget || numOfLabels >= labelLimit || System.nanoTime() > deadline || cancelled) {
+                outOfBudget = true;
+                break;
+            }
+            double ub = Double.longBitsToDouble(sharedUB.get());
+            tasks.clear();
+            int size = Math.min(nThreads, numOfPartitions - wave);
+            for (int i = 0; i < size; i++) {
+                PricingLabelSetting worker = workers[i];
+                // the labels left in the budget are shared evenly by the workers of the wave
+                worker.labelLimit = labelLimit == Long.MAX_VALUE ? Long.MAX_VALUE : (labelLimit - numOfLabels) / size;
+                int firstJob = firstJobs[wave + i];
+                tasks.add(() -> {
+                    worker.solvePartition(firstJob, ub);
+                    double cost = worker.reducedCostUB;
+                    sharedUB.getAndUpdate(bits -> Double.doubleToLongBits(Math.min(Double.longBitsToDouble(bits), cost)));
+                    return null;
+                });
+            }
+            for (Future<Void> future : forkJoinPool.invokeAll(tasks)) {
+                try {
+                    future.get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+            // merge in the order of the partitions
+            for (int i = 0; i < size; i++) {
+                PricingLabelSetting worker = workers[i];
+                allBlocks.addAll(worker.newBlocks);
+                numOfLabels += worker.numOfLabels;
+                numOfLabelsPrunedByLb += worker.numOfLabelsPrunedByLb;
+                numOfLabelsDominated += worker.numOfLabelsDominated;
+                timeOnLowerBound += worker.timeOnLowerBound;
+                timeOnDominanceRule += worker.timeOnDominanceRule;
+                outOfBudget |= worker.outOfBudget;
+                truncated |= worker.truncated;
+            }
+        }
+        truncated |= allBlocks.size() > maxNumOfBlocks;
+        // keep the maxNumOfBlocks most negative blocks, ties in the order of the partitions
+        if (blockCosts.length < allBlocks.size()) {
+            blockCosts = new double[Math.max(allBlocks.size(), 2 * blockCosts.length)];
+        }
+        double constant = instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2];
+        for (int k = 0; k < allBlocks.size(); k++) {
+            double cost = constant;
+            for (int j : allBlocks.get(k)) {
+                cost -= duals[j];
+            }
+            blockCosts[k] = cost;
+        }
+        Integer[] order = new Integer[allBlocks.size()];
+        for (int k = 0; k < order.length; k++) {
+            order[k] = k;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(k -> blockCosts[k]));
+        for (int k = 0; k < order.length && k < maxNumOfBlocks; k++) {
+            newBlocks.add(allBlocks.get(order[k]));
+        }
+        if (!newBlocks.isEmpty()) {
+            mostNegativeBlock = newBlocks.get(0);
+            reducedCostUB = blockCosts[order[0]];
+        }
+    }
 
+    /**
+     * worker: search the blocks whose first job is firstJob and whose reduced cost is less than ub
+     */
+    private void solvePartition(int firstJob, double ub) {
+        newBlocks.clear();
+        pool.clear();
+        mostNegativeBlock = null;
+        reducedCostUB = ub;
+        incumbentCost = Double.MAX_VALUE;
+        numOfLabels = 0;
+        numOfLabelsPrunedByLb = 0;
+        numOfLabelsDominated = 0;
+        timeOnLowerBound = 0;
+        timeOnDominanceRule = 0;
+        budgetChecks = 0;
+        outOfBudget = false;
+        truncated = false;
+        searchForward(firstJob);
     }
 
-    private boolean timeIsOut() {
-        return (timeLimit > 0 && 0.001 * (System.currentTimeMillis() - start) > timeLimit);
+    private void backwardLabelSetting() {
+        LabelQueue unexplored = bunexplored;
+        unexplored.clear();
+        bstates.clear(mergedDuals);
+        double[] minCost = bminCosts;
+        Arrays.fill(minCost, Integer.MAX_VALUE);
+        int initialLabel = createInitialLabel(Direction.BACKWARD);
+        unexplored.add(initialLabel);
+        while (!budgetIsOut() && !unexplored.isEmpty() && newBlocks.size() <= maxNumOfBlocks) {
+            int label = unexplored.poll();
+            if (pool.dominated[label]) {
+                continue;
+            }
+            extend(unexplored, bstates, minCost, label, Direction.BACKWARD);
+            addEnd(label, Direction.BACKWARD);
+        }
+        truncated |= !unexplored.isEmpty();
     }
 
     private void bidirLabelSetting() {
-        PriorityQueue<Label> funexplored = new PriorityQueue<>(Comparator.comparing(o -> o.reducedCost));
-        PriorityQueue<Label> bunexplored = new PriorityQueue<>(Comparator.comparing(o -> o.reducedCost));
-        ArrayList<Label>[] fstates = new ArrayList[nJobs];
-        ArrayList<Label>[] bstates = new ArrayList[nJobs];
-        double[] fminCosts = new double[nJobs];
-        double[] bminCosts = new double[nJobs];
-        for (int i = 0; i < nJobs; i++) {
-            if (removedJobs.get(i)) continue;
-            fstates[i] = new ArrayList<>();
-            bstates[i] = new ArrayList<>();
-        }
+        fstates.clear(mergedDuals);
+        bstates.clear(mergedDuals);
+        funexplored.clear();
+        bunexplored.clear();
         Arrays.fill(fminCosts, Double.MAX_VALUE);
         Arrays.fill(bminCosts, Double.MAX_VALUE);
         // 1.0. forward label setting
-        createInitialLabel(funexplored, Direction.FORWARD);
-        while (!funexplored.isEmpty()) {
-            Label label = funexplored.poll();
-            if (label.dominated) continue;
-            if (label.processingTime * 2 < instance.T) { // resource bounding: half limit
+        int finitial = createInitialLabel(Direction.FORWARD);
+        funexplored.add(finitial);
+        while (!budgetIsOut() && !funexplored.isEmpty()) {
+            int label = funexplored.poll();
+            if (pool.dominated[label]) continue;
+            if (pool.processingTime[label] * 2 < instance.T) { // resource bounding: half limit
+                completeGreedily(label, Direction.FORWARD);
                 extend(funexplored, fstates, fminCosts, label, Direction.FORWARD);
             }
         }
         // 2.0. backward label setting
-        createInitialLabel(bunexplored, Direction.BACKWARD);
-        while (!bunexplored.isEmpty()) {
-            Label label = bunexplored.poll();
-            if (label.dominated) continue;
-            if (label.processingTime * 2 < instance.T) { // resource bounding: half limit
+        int binitial = createInitialLabel(Direction.BACKWARD);
+        bunexplored.add(binitial);
+        while (!budgetIsOut() && !bunexplored.isEmpty()) {
+            int label = bunexplored.poll();
+            if (pool.dominated[label]) continue;
+            if (pool.processingTime[label] * 2 < instance.T) { // resource bounding: half limit
+                completeGreedily(label, Direction.BACKWARD);
                 extend(bunexplored, bstates, bminCosts, label, Direction.BACKWARD);
             }
         }
         // 3.0. merge forward and backward labels
-        for (int i = 0; i < nJobs; i++) {
-            if (removedJobs.get(i)) continue;
-            for (int j = i + 1; j < nJobs; j++) {
-                if (removedJobs.get(j)) continue;
-                if (isPrunedByLB(i, fminCosts, j, bminCosts)) continue;
-                for (Label flabel : fstates[i]) {
-                    if (isPrunedByLB(flabel, j, bminCosts)) continue;
-                    for (Label blabel : bstates[j]) {
-                        double cost = flabel.reducedCost + blabel.reducedCost;
-                        if (cost + Base.EPS < Math.min(0, reducedCostUB)) {
-                            if (canJoin(flabel, blabel)
-                                    && reachHalfWay(flabel, blabel)) {
-                                Block block = join(flabel, blabel);
-                                newBlocks.add(block);
-                                if (cost + Base.EPS < reducedCostUB) {
-                                    reducedCostUB = cost;
-                                    mostNegativeBlock = block;
-                                }
-
-                                if (Param.debug) {
-                                    if (!node.isValid(block)) {
-                                        System.err.println("error: invalid block");
-                                    }
-                                    if (!block.isFeasible(instance)) {
-                                        System.err.println("error: infeasible block");
-                                    }
-                                }
+        // the initial labels take part in the join, so that the blocks lying on one side are generated as well
+        fjoin.clear();
+        fjoin.add(finitial);
+        collectLabels(fstates, fjoin);
+        fjoin.build();
+        bjoin.clear();
+        bjoin.add(binitial);
+        collectLabels(bstates, bjoin);
+        bjoin.build();
+        double bminCost = bjoin.minCost();
+        for (int k = 0; k < fjoin.size && newBlocks.size() <= maxNumOfBlocks; k++) {
+            int flabel = fjoin.labels[k];
+            double fcost = pool.reducedCost[flabel];
+            if (fcost + bminCost + Base.EPS >= Math.min(0, reducedCostUB)) {
+                continue;
+            }
+            int capacity = instance.T - pool.processingTime[flabel];
+            for (int t = 0; t <= capacity; t++) {
+                for (int h = bjoin.start[t]; h < bjoin.start[t + 1]; h++) {
+                    int blabel = bjoin.labels[h];
+                    double cost = fcost + pool.reducedCost[blabel];
+                    if (cost + Base.EPS >= Math.min(0, reducedCostUB)) {
+                        break; // the rest of the bucket is not cheaper
+                    }
+                    if (flabel == finitial && blabel == binitial) {
+                        continue; // empty block
+                    }
+                    if (canJoin(flabel, blabel) && reachHalfWay(flabel, blabel)) {
+                        Block block = join(flabel, blabel);
+                        newBlocks.add(block);
+                        if (cost + Base.EPS < reducedCostUB) {
+                            reducedCostUB = cost;
+                            mostNegativeBlock = block;
+                        }
+
+                        if (Param.debug) {
+                            if (!node.isValid(block)) {
+                                System.err.println("error: invalid block");
+                            }
+                            if (!block.isFeasible(instance)) {
+                                System.err.println("error: infeasible block");
                             }
                         }
                     }
                 }
             }
         }
+        truncated |= newBlocks.size() > maxNumOfBlocks;
     }
 
-    Block join(Label flabel, Label blabel) {
+    Block join(int flabel, int blabel) {
         Block block = new Block();
         for (int i = 0; i < nJobs; i++) {
-            if (flabel.containJobs.get(i) || blabel.containJobs.get(i)) {
-                for (int j : andJobs[i]) {
+            if (pool.contains(flabel, i) || pool.contains(blabel, i)) {
+                for (int j : andJobs[jobAt[i]]) {
                     block.add(j, instance);
                 }
             }
@@ -308,15 +1131,17 @@ public class PricingLabelSetting {
    min |flabel.duration - blabel.duration|
    duration increases monotonically
     */
-    boolean reachHalfWay(Label flabel, Label blabel) {
-        int curGap = Math.abs(flabel.processingTime - blabel.processingTime);
+    boolean reachHalfWay(int flabel, int blabel) {
+        int fTime = pool.processingTime[flabel];
+        int bTime = pool.processingTime[blabel];
+        int curGap = Math.abs(fTime - bTime);
         if (curGap == 0) return true;
-        int i = (flabel.processingTime > blabel.processingTime ? flabel.curJob : blabel.curJob);
+        int i = (fTime > bTime ? pool.curJob[flabel] : pool.curJob[blabel]);
         int newGap = Math.abs(curGap - 2 * mergedP[i]);
         if (curGap < newGap) {
             return true;
         } else if (curGap == newGap) {
-            return flabel.processingTime > blabel.processingTime;
+            return fTime > bTime;
         } else {
             return false;
         }
@@ -332,28 +1157,28 @@ public class PricingLabelSetting {
      * @param blabel
      * @return
      */
-    private boolean canJoin(Label flabel, Label blabel) {
-        if (flabel.curJob < blabel.curJob
-                && flabel.processingTime + blabel.processingTime <= instance.T
+    private boolean canJoin(int flabel, int blabel) {
+        if (pool.curJob[flabel] < pool.curJob[blabel]
+                && pool.processingTime[flabel] + pool.processingTime[blabel] <= instance.T
                 && isCompatible(flabel, blabel)) {
             return true;
         }
         return false;
     }
 
-    // required: flabel.i < blabel.i
-    private boolean isCompatible(Label flabel, Label blabel) {
-        for (int i = 0; i <= flabel.curJob; i++) {
-            if (removedJobs.get(i) || !flabel.containJobs.get(i)) {
-                continue;
-            }
-            for (int j = blabel.curJob; j < nJobs; j++) {
-                if (removedJobs.get(j) || !blabel.containJobs.get(j)) {
-                    continue;
-                }
-                if (orJobs[i][j]) {
-                    return false;
-                }
+    /**
+     * required: flabel.i < blabel.i
+     * the next jobs of flabel are the jobs after flabel.i which are not in conflict with flabel and fit into it,
+     * so both labels are compatible iff all jobs of blabel are next jobs of flabel
+     */
+    private boolean isCompatible(int flabel, int blabel) {
+        long[] contain = pool.containJobs;
+        long[] next = pool.nextJobs;
+        int foffset = flabel * nWords;
+        int boffset = blabel * nWords;
+        for (int w = 0; w < nWords; w++) {
+            if ((contain[boffset + w] & ~next[foffset + w]) != 0) {
+                return false;
             }
         }
         return true;
@@ -365,114 +1190,144 @@ public class PricingLabelSetting {
      * @param unexplored
      * @param direction
      */
-    private void createInitialLabel(PriorityQueue<Label> unexplored, Direction direction) {
+    private int createInitialLabel(Direction direction) {
         int curJob = (direction == Direction.FORWARD ? -1 : nJobs); // dummy job, maintenance; keep i < j
         int processingTime = 0;
         double reducedCost = (direction == Direction.FORWARD ?
                 (instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2]) : 0);
-        BitSet containJobs = new BitSet(nJobs);
-        BitSet nextJobs = new BitSet(nJobs); // 在初始化的nextJobs，那些被合并的job就已经不会出现了。
+        int label = pool.create(curJob, processingTime, reducedCost);
+        // 在初始化的nextJobs，那些被合并的job就已经不会出现了。
         for (int i = 0; i < nJobs; i++) {
-            if (yOne.contains(i)) {
-                continue;
+            if (candidates[i]) {
+                pool.setNext(label, i);
             }
-            if (removedJobs.get(i)) {
-                continue;
-            }
-            if (mergedDuals[i] < Base.EPS) {
-                continue;
-            }
-            nextJobs.set(i);
         }
-        Label label = new Label(curJob, processingTime, reducedCost, containJobs, nextJobs);
+        return label;
+    }
+
+    public void extend(LabelQueue unexplored, DominanceIndex states,
+                       double[] minCosts, int parent, Direction dir) {
+        for (int j = pool.nextJob(parent, 0); j >= 0; j = pool.nextJob(parent, j + 1)) {
+            extendTo(unexplored, states, minCosts, parent, j, dir);
+        }
+    }
+
+    private void extendTo(LabelQueue unexplored, DominanceIndex states,
+                          double[] minCosts, int parent, int j, Direction dir) {
+        if (pool.processingTime[parent] + mergedP[j] > instance.T) {
+            return;
+        }
+        if (breaksSymmetry(dir) && (dir == Direction.FORWARD ?
+                prevOfType[j] > pool.curJob[parent] : nextOfType[j] >= 0 && nextOfType[j] < pool.curJob[parent])) {
+            return; // the job of the type before (after) j is skipped
+        }
+        if (bucketLimit < Integer.MAX_VALUE
+                && states.bucketSize(j, pool.processingTime[parent] + mergedP[j]) >= bucketLimit) {
+            return; // restricted label setting
+        }
+        int label = createLabel(parent, j, dir);
+        numOfLabels++;
+        if (dominanceFlag && isDominated(label, states)) { // label is dominated by the label in states
+            numOfLabelsDominated++;
+            return;
+        }
+        if (fathomingFlag && isPrunedByLB(label, dir)) {
+            numOfLabelsPrunedByLb++;
+            return;
+        }
+        if (dominanceFlag) {
+            numOfLabelsDominated += states.removeDominatedBy(label);
+        }
         unexplored.add(label);
+        states.add(label);
+        minCosts[j] = Math.min(minCosts[j], pool.reducedCost[label]);
+        if (searchDirection == SearchDirection.BIDIR) {
+            incumbentCost = Math.min(incumbentCost, costOfBlock(label, dir));
+        }
     }
 
-    public void extend(PriorityQueue<Label> unexplored, ArrayList<Label>[] states,
-                       double[] minCosts, Label parent, Direction dir) {
-        for (int j = parent.nextJobs.nextSetBit(0); j >= 0; j = parent.nextJobs.nextSetBit(j + 1)) {
-            if (parent.processingTime + mergedP[j] > instance.T) {
-                continue;
-            }
-            Label label = createLabel(parent, j, dir);
-            numOfLabels++;
-            if (dominanceFlag == true && fathomingFlag == true) {
-                int index = isDominated(label, states[j]);
-                if (index == -1) { // label is dominated by the label in states[j]
-                    numOfLabelsDominated++;
-                    continue;
-                }
-                boolean pruned = isPrunedByLB(label, dir);
-                if (pruned) {
-                    numOfLabelsPrunedByLb++;
-                    continue;
-                }
-                unexplored.add(label);
-                states[j].add(index, label);
-                minCosts[j] = Math.min(minCosts[j], label.reducedCost);
-            } else if (dominanceFlag == false && fathomingFlag == true) {// no dominance rule
-                boolean pruned = isPrunedByLB(label, dir);
-                if (pruned) {
-                    numOfLabelsPrunedByLb++;
-                    continue;
-                }
-                unexplored.add(label);
-                states[j].add(label);
-                minCosts[j] = Math.min(minCosts[j], label.reducedCost);
-            } else if (dominanceFlag == true && fathomingFlag == false) {// no bounding
-                int index = isDominated(label, states[j]);
-                if (index == -1) { // label is dominated by the label in states[j]
-                    numOfLabelsDominated++;
-                    continue;
-                }
-                unexplored.add(label);
-                states[j].add(index, label);
-                minCosts[j] = Math.min(minCosts[j], label.reducedCost);
-            }
+    private int createLabel(int parent, int j, Direction dir) {
+        int processingTime = pool.processingTime[parent] + mergedP[j];
+        double reducedCost = pool.reducedCost[parent] - mergedDuals[j];
+        int label = pool.create(parent, j, processingTime, reducedCost);
+        pool.addJob(label, j); // 此处放的是合并之后的job j 想要获得真实的，还需要倒推。但是只需要在最后的时候考虑就好了
+        pool.clearNext(label, j);
+        int parentJob = pool.curJob[parent];
+        if (dir == Direction.FORWARD) {
+            pool.clearNext(label, parentJob + 1, j); // [parent.curJob + 1 ,j)
+        } else if (dir == Direction.BACKWARD) {
+            pool.clearNext(label, j + 1, parentJob); // [j + 1, parent.curJob) parent.curJob这个位置在parent的时候已经被clear了
         }
+        // drop the next jobs in conflict with j and those which do not fit into the residual capacity
+        pool.restrictNext(label, conflictRows, j * nWords, fitMasks, (instance.T - processingTime) * nWords);
+        if (breaksSymmetry(dir)) {
+            closeSkippedTypes(label, parent, j, dir);
+        }
+        return label;
     }
 
-    private Label createLabel(Label parent, int j, Direction dir) {
-        int processingTime = parent.processingTime + mergedP[j];
-        double reducedCost = parent.reducedCost - mergedDuals[j];
-        BitSet containJobs = (BitSet) parent.containJobs.clone();
-        BitSet nextJobs = (BitSet) parent.nextJobs.clone();
-        containJobs.set(j); // 此处放的是合并之后的job j 想要获得真实的，还需要倒推。但是只需要在最后的时候考虑就好了
-        nextJobs.clear(j);
+    /**
+     * the jobs of a type after (forward) / before (backward) a skipped job can no longer be taken
+     */
+    private void closeSkippedTypes(int label, int parent, int j, Direction dir) {
+        int parentJob = pool.curJob[parent];
         if (dir == Direction.FORWARD) {
-            nextJobs.clear(parent.curJob + 1, j); // [parent.curJob + 1 ,j)
-            for (int h = nextJobs.nextSetBit(j + 1); h >= 0; h = nextJobs.nextSetBit(h + 1)) {
-                if (orJobs[h][j] || mergedP[h] + processingTime > instance.T) {
-                    nextJobs.clear(h);
+            for (int s = pool.nextJob(parent, parentJob + 1); s >= 0 && s < j; s = pool.nextJob(parent, s + 1)) {
+                if (nextOfType[s] >= 0) {
+                    pool.removeNext(label, laterOfType, s * nWords);
                 }
             }
-        } else if (dir == Direction.BACKWARD) {
-            nextJobs.clear(j + 1, parent.curJob); // [j + 1, parent.curJob) parent.curJob这个位置在parent的时候已经被clear了
-            for (int h = nextJobs.nextSetBit(0); h >=0 && h < j; h = nextJobs.nextSetBit(h + 1)) {
-                if (orJobs[h][j] || mergedP[h] + processingTime > instance.T) {
-                    nextJobs.clear(h);
+        } else {
+            for (int s = pool.nextJob(parent, j + 1); s >= 0 && s < parentJob; s = pool.nextJob(parent, s + 1)) {
+                if (prevOfType[s] >= 0) {
+                    pool.removeNext(label, earlierOfType, s * nWords);
                 }
             }
         }
-        Label label = new Label(j, processingTime, reducedCost, containJobs, nextJobs);
-        return label;
     }
 
-    private void addEnd(Label label, Direction dir) {
-        if (label.curJob == -1 || label.curJob == nJobs) {
-            return;
-        }// dummy job
-        double cost = label.reducedCost;
+    /**
+     * complete the label with its next jobs in DESC order of dual / p,
+     * the reduced cost of the completed (feasible) block tightens incumbentCost
+     */
+    private void completeGreedily(int label, Direction dir) {
+        int[] order = completionBound.order;
+        int leftSpace = instance.T - pool.processingTime[label];
+        double cost = costOfBlock(label, dir);
+        Arrays.fill(greedyConflicts, 0L);
+        for (int k = 0; k < completionBound.size && leftSpace > 0; k++) {
+            int j = order[k];
+            if (mergedP[j] > leftSpace || !pool.hasNext(label, j)
+                    || (greedyConflicts[j >>> 6] & (1L << j)) != 0) {
+                continue;
+            }
+            for (int w = 0; w < nWords; w++) {
+                greedyConflicts[w] |= conflictRows[j * nWords + w];
+            }
+            leftSpace -= mergedP[j];
+            cost -= mergedDuals[j];
+        }
+        incumbentCost = Math.min(incumbentCost, cost);
+    }
+
+    private double costOfBlock(int label, Direction dir) {
+        double cost = pool.reducedCost[label];
         if (dir == Direction.BACKWARD) {
             cost += (instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2]);
         }
-        if (cost + Base.EPS < Math.min(0, reducedCostUB)) {
+        return cost;
+    }
+
+    private void addEnd(int label, Direction dir) {
+        if (pool.curJob[label] == -1 || pool.curJob[label] == nJobs) {
+            return;
+        }// dummy job
+        double cost = costOfBlock(label, dir);
+        if (enumerating ? cost <= enumerationThreshold + Base.EPS : cost + Base.EPS < Math.min(0, reducedCostUB)) {
             Block block = new Block();
-            for (int i = 0; i < nJobs; i++) {
-                if (label.containJobs.get(i)) {
-                    for (int j : andJobs[i]) {
-                        block.add(j, instance);
-                    }
+            for (int i = pool.containJob(label, 0); i >= 0; i = pool.containJob(label, i + 1)) {
+                for (int j : andJobs[jobAt[i]]) {
+                    block.add(j, instance);
                 }
             }
             newBlocks.add(block);
@@ -494,162 +1349,72 @@ public class PricingLabelSetting {
 
 
 
-    boolean isPrunedByLB(int i, double[] fminCost, int j, double[] bminCost) {
-        double lb = fminCost[i] + bminCost[j];
-        return lb + Base.EPS >= Math.min(0, reducedCostUB);
-    }
-
-    boolean isPrunedByLB(Label flabel, int j, double[] bminCost) {
-        double lb = flabel.reducedCost + bminCost[j];
-        return lb + Base.EPS >= Math.min(0, reducedCostUB);
-    }
-
-    private boolean isPrunedByLB(Label label, Direction dir) {
+    private boolean isPrunedByLB(int label, Direction dir) {
         long s0 = System.currentTimeMillis();
-        double lb = computeLBOnCost(label, dir);
-        timeOnLowerBound += Base.getTimeCost(s0);
-        return lb + Base.EPS >= Math.min(0, reducedCostUB);
-    }
-
-    private double computeLBOnCost(Label label, Direction dir) {
-        int[] weights = new int[nJobs];
-        double[] values = new double[nJobs];
-        int cnt = 0;
-        for (int j = 0; j < nJobs; j++) {
-            if (label.nextJobs.get(j) && mergedDuals[j] > 0) {
-                weights[cnt] = mergedP[j];
-                values[cnt] = mergedDuals[j];
-                cnt++;
-            }
+        double cost = costOfBlock(label, dir);
+        int capacity = instance.T - pool.processingTime[label];
+        // the block of the incumbent is only generated by the join, keep the labels which can still reach it
+        double ub = enumerating ? enumerationThreshold + 2 * Base.EPS
+                : Math.min(0, Math.min(reducedCostUB, incumbentCost + 2 * Base.EPS));
+        boolean pruned = false;
+        double maxValue = 0;
+        if (boundMode != BoundMode.CONTINUOUS) {
+            maxValue = completionBound.dpBound(pool.curJob[label], capacity, dir == Direction.FORWARD);
+            pruned = cost - maxValue + Base.EPS >= ub;
         }
-        weights = Arrays.copyOfRange(weights, 0, cnt);
-        values = Arrays.copyOfRange(values, 0, cnt);
-        int capacity = instance.T - label.processingTime;
-        double maxValue = solveContinuousKnapSack(capacity, weights, values);
-        double lb = label.reducedCost - maxValue;
-        if (dir == Direction.BACKWARD) {
-            lb += (instance.T + instance.t - duals[nJobs + 1] - duals[nJobs + 2]);
-        }
-        return lb;
-    }
-
-    private double solveContinuousKnapSack(int capacity, int[] weights, double[] values) {
-        int size = weights.length;
-        // sort items in DESC of v[j]/w[j]
-        Integer[] items = new Integer[size];
-        for (int i = 0; i < size; i++) {
-            items[i] = i;
-        }
-        Arrays.sort(items, Comparator.comparingDouble(o -> -(values[o] / weights[o])));
-        double leftSpace = capacity;
-        double totalValue = 0;
-        for (int i : items) {
-            if (values[i] <= 0) break;
-            // take the largest possible value
-            if (leftSpace - weights[i] >= 0) {
-                leftSpace -= weights[i];
-                totalValue += values[i];
-            } else {
-                totalValue += leftSpace / weights[i] * values[i];
-                break;
-            }
+        if (!pruned && boundMode != BoundMode.DP) {
+            maxValue = completionBound.continuousBound(pool, label, capacity);
+            pruned = cost - maxValue + Base.EPS >= ub;
         }
-        return totalValue;
-    }
-
-    /**
-     * @param l2
-     * @param states
-     * @return -1 if a is dominated by other label || index if a dominates other labels in the state
-     */
-    private int isDominated(Label l2, ArrayList<Label> states) {
-        long s0 = 0;
-        int index = 0;
-        for (int h = 0; h < states.size(); h++) {
-            Label l1 = states.get(h);
-            if (l1.processingTime > l2.processingTime) {
-                index = h;
-                break;
-            }
-            if (isDominated(l2, l1)) {
-                l2.dominated = true;
-                index = -1;
-                break;
-            }
+        if (pruned) {
+            labelLB = Math.min(labelLB, cost - maxValue);
         }
-       /*  if (!l2.dominated) {
-            for (int h = states.size() - 1; h >= 0; h--) {
-                Label l1 = states.get(h);
-                if (l1.processingTime < l2.processingTime) {
-                    index = h + 1;
-                    break;
-                }
-                if (isDominated(l1, l2)) {
-                    l1.dominated = true;
-                    states.remove(h);
-                }
-            }
-        } */
-        timeOnDominanceRule += 0.001 * (System.currentTimeMillis() - s0);
-        return index;
+        timeOnLowerBound += Base.getTimeCost(s0);
+        return pruned;
     }
 
-    /**
-     * whether l2 is dominated by l1
-     *
-     * @param l1
-     * @param l2
-     * @return true if a is dominated by b <==> b dominates a
-     */
-    private boolean isDominated(Label l2, Label l1) {
-        /**
-         * l1 dominates l2
-         * l1.processingTime <= l2.processingTime
-         */
-        if (l1.processingTime <= l2.processingTime && l2.reducedCost <= l1.reducedCost + Base.EPS) {
-            double sum = 0;
-            for (int h = l2.nextJobs.nextSetBit(0); h >= 0; h = l2.nextJobs.nextSetBit(h + 1)) {
-                if (!l1.nextJobs.get(h)) {
-                    sum += mergedDuals[h];
+    private boolean isDominated(int label, DominanceIndex states) {
+        long s0 = System.currentTimeMillis();
+        boolean dominated = states.isDominated(label);
+        timeOnDominanceRule += Base.getTimeCost(s0);
+        return dominated;
+    }
 
-                }
-            }
-            if (l1.reducedCost + sum <= l2.reducedCost + Base.EPS) {
-                if (l1.processingTime < l2.processingTime || l1.reducedCost + sum < l2.reducedCost - Base.EPS) {
-                    return true;
-                }
+    private void collectLabels(DominanceIndex states, JoinIndex index) {
+        for (int job = 0; job < nJobs; job++) {
+            int size = states.size(job);
+            if (size == 0) {
+                continue;
             }
+            index.ensureCapacity(index.size + size);
+            index.size += states.labels(job, index.labels, index.size);
         }
-        return false;
     }
 
-
+    @Override
     public boolean findNewBlocks() {
         return !newBlocks.isEmpty();
     }
 
-    class Label {
-        int curJob;
-        int processingTime;
-        double reducedCost;
-        BitSet containJobs;
-        BitSet nextJobs; // 未来可以拓展的job
-
-        double lb; // 根据当前的cost以及未来的nextJobs所可能带来的reducedCost的下界
-        boolean dominated;
-
-        public Label(int curJob, int processingTime, double reducedCost, BitSet containJobs, BitSet nextJobs) {
-            this.curJob = curJob;
-            this.processingTime = processingTime;
-            this.reducedCost = reducedCost;
-            this.containJobs = containJobs;
-            this.nextJobs = nextJobs;
+    @Override
+    public void setCancelled(boolean cancelled) {
+        this.cancelled = cancelled;
+        PricingLabelSetting[] workers = this.workers;
+        if (workers != null) {
+            for (PricingLabelSetting worker : workers) {
+                worker.cancelled = cancelled;
+            }
         }
+    }
 
-        @Override
-        public String toString() {
-            return "(" + curJob + ", " + processingTime + ", " + reducedCost + ", " + containJobs.toString() + ")";
-        }
+    @Override
+    public double getMinReducedCost() {
+        return Math.min(0, reducedCostUB);
+    }
+
+    @Override
+    public ArrayList<Block> getNewBlocks() {
+        return newBlocks;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package algo;
+
+import comn.Base;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * runs several pricing engines on the same duals at the same time, the first exhaustive answer wins
+ * and the other engines are cancelled. None of them is better on every node: the label setting is fast
+ * when the duals are spread, the MIP when many jobs fit into a block and the labels explode.
+ * Experimental: the race against the Gurobi MIP has not been run yet, so its latency is not measured
+ */
+public class PricingPortfolio implements PricingEngine {
+    static final int LABEL_SETTING = 0;
+    static final int MIP = 1;
+    static final int NUM_OF_ENGINES = 2;
+    static final String[] ENGINE_NAMES = {"labelSetting", "mip"};
+
+    PricingEngine[] engines;
+    ForkJoinPool forkJoinPool;
+    Node node;
+    PricingEngine winner; // the engine whose answer is returned by the last call
+    ArrayList<Future<Integer>> running; // the cancelled engines of the last call, which may not have returned yet
+
+    public PricingPortfolio(PricingLabelSetting labelSetting, Pricing mip) {
+        this.engines = new PricingEngine[NUM_OF_ENGINES];
+        engines[LABEL_SETTING] = labelSetting;
+        engines[MIP] = mip;
+        // the engines run concurrently, only the portfolio writes the statistics of the node
+        labelSetting.recordStatistics = false;
+        mip.recordStatistics = false;
+        this.forkJoinPool = new ForkJoinPool(NUM_OF_ENGINES);
+        this.running = new ArrayList<>();
+    }
+
+    @Override
+    public void set(Node node) {
+        awaitEngines();
+        this.node = node;
+        for (PricingEngine engine : engines) {
+            engine.set(node);
+        }
+    }
+
+    /**
+     * returns as soon as an engine gives an exhaustive answer, the cancelled ones stop within a few thousand labels
+     * or at the next callback of the MIP in the background and are awaited by the next call (awaitEngines).
+     * If no answer is exhaustive, all of them are awaited and the first one with negative blocks is taken
+     */
+    @Override
+    public void solve(double[] duals, long timeLimit) {
+        awaitEngines();
+        long s0 = System.currentTimeMillis();
+        CompletionService<Integer> completionService = new ExecutorCompletionService<>(forkJoinPool);
+        for (int k = 0; k < engines.length; k++) {
+            PricingEngine engine = engines[k];
+            int index = k;
+            running.add(completionService.submit(() -> {
+                engine.solve(duals, timeLimit);
+                return index;
+            }));
+        }
+        int winnerIndex = -1;
+        int fallbackIndex = -1;
+        int lastIndex = -1;
+        for (int done = 0; done < engines.length && winnerIndex < 0; done++) {
+            int k;
+            try {
+                k = completionService.take().get();
+            } catch (InterruptedException | ExecutionException e) {
+                setCancelled(true);
+                awaitEngines();
+                throw new RuntimeException(e);
+            }
+            lastIndex = k;
+            if (engines[k].isExhaustive()) {
+                winnerIndex = k;
+                for (int other = 0; other < engines.length; other++) {
+                    if (other != k) {
+                        engines[other].setCancelled(true);
+                    }
+                }
+            } else if (fallbackIndex < 0 && engines[k].findNewBlocks()) {
+                fallbackIndex = k;
+            }
+        }
+        boolean exhaustive = winnerIndex >= 0;
+        if (!exhaustive) {
+            winnerIndex = fallbackIndex >= 0 ? fallbackIndex : lastIndex;
+        }
+        winner = engines[winnerIndex];
+
+        double timeCost = Base.getTimeCost(s0);
+        node.timeOnPP += timeCost;
+        node.cntPPCall++;
+        if (exhaustive) {
+            node.cntPPWins[winnerIndex]++;
+            node.timeOnPPWins[winnerIndex] += timeCost;
+        }
+    }
+
+    /**
+     * wait for the engines still running on the duals of the last call, before any engine is used again
+     * (also directly, as the label setting by closeByEnumeration), and clear their cancellation
+     */
+    public void awaitEngines() {
+        try {
+            for (Future<Integer> future : running) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            running.clear();
+        }
+        setCancelled(false);
+    }
+
+    @Override
+    public boolean findNewBlocks() {
+        return winner.findNewBlocks();
+    }
+
+    @Override
+    public boolean isExhaustive() {
+        return winner.isExhaustive();
+    }
+
+    @Override
+    public double getMinReducedCost() {
+        return winner.getMinReducedCost();
+    }
+
+    @Override
+    public void extendBudget() {
+        awaitEngines();
+        for (PricingEngine engine : engines) {
+            engine.extendBudget();
+        }
+    }
+
+    @Override
+    public void resetBudget() {
+        awaitEngines();
+        for (PricingEngine engine : engines) {
+            engine.resetBudget();
+        }
+    }
+
+    @Override
+    public void setCancelled(boolean cancelled) {
+        for (PricingEngine engine : engines) {
+            engine.setCancelled(cancelled);
+        }
+    }
+
+    @Override
+    public ArrayList<Block> getNewBlocks() {
+        return winner.getNewBlocks();
+    }
+}
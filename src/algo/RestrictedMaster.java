@@ -0,0 +1,92 @@
+package algo;
+
+/**
+ * the LP of the restricted master problem, without anything about blocks or branching (that is Master):
+ * a fixed set of rows and a set of columns which grows and shrinks. The variables are handles which stay
+ * valid until they are removed, the bounds are INFINITY when there is none.
+ * Every change is taken into account by the next optimize(), which starts from the last basis
+ */
+public interface RestrictedMaster {
+    double INFINITY = 1e100; // the same as GRB.INFINITY
+    char GREATER_EQUAL = '>';
+    char LESS_EQUAL = '<';
+    char EQUAL = '=';
+    // the basis statuses, the codes of VBasis and CBasis
+    int BASIC = 0;
+    int NONBASIC_LOWER = -1;
+    int NONBASIC_UPPER = -2;
+    int SUPERBASIC = -3;
+
+    /**
+     * @param senses GREATER_EQUAL, LESS_EQUAL or EQUAL, all the rows are added at once before any variable
+     */
+    void addRows(char[] senses, double[] rhs, String[] names);
+
+    /**
+     * @param rows   rows[h]: the rows of the nonzeros of variable h
+     * @param coeffs coeffs[h]: their coefficients
+     * @return the handles of the new variables
+     */
+    int[] addVars(double[] lb, double[] ub, double[] obj, int[][] rows, double[][] coeffs, String[] names);
+
+    void removeVars(int[] vars);
+
+    void setLB(int[] vars, double[] values);
+
+    void setUB(int[] vars, double[] values);
+
+    void setObj(int[] vars, double[] values);
+
+    void setRHS(int row, double value);
+
+    double getRHS(int row);
+
+    /**
+     * @return true if the LP is solved to optimality
+     */
+    boolean optimize();
+
+    double getObjValue();
+
+    /**
+     * @return the duals of all the rows, >= 0 for GREATER_EQUAL and <= 0 for LESS_EQUAL
+     */
+    double[] getDuals();
+
+    double[] getValues(int[] vars);
+
+    double[] getReducedCosts(int[] vars);
+
+    /**
+     * @return null unless the last optimize() proved the LP infeasible, then a Farkas ray with the signs of the duals:
+     * every solution of the rows has ray * Ax >= ray * rhs, but the max of ray * Ax within the bounds is smaller
+     */
+    double[] getFarkasDuals();
+
+    /**
+     * the basis of the last optimize(), a row is BASIC or NONBASIC_LOWER (its slack at 0)
+     */
+    int[] getVarBasis(int[] vars);
+
+    int[] getRowBasis();
+
+    /**
+     * the next optimize() starts from this basis, the other variables are NONBASIC_LOWER.
+     * A basis without exactly one basic status per row is repaired or ignored by the backend
+     */
+    void setBasis(int[] vars, int[] varBasis, int[] rowBasis);
+
+    /**
+     * @return the simplex iterations of the last optimize()
+     */
+    int getIterationCount();
+
+    /**
+     * all the variables of the LP, for debugging
+     */
+    String[] getVarNames();
+
+    double[] getVarValues();
+
+    void dispose();
+}
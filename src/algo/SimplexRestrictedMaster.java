@@ -0,0 +1,904 @@
+package algo;
+
+import java.util.Arrays;
+
+/**
+ * a bounded revised simplex for the RMP, in process. The RMP has n + 3 rows only, so the basis inverse is dense
+ * (updated at every pivot, refactored every REFACTOR_INTERVAL pivots) and the columns are sparse.
+ * Row i is a_i x + r_i = rhs_i with the logical r_i <= 0 (GREATER_EQUAL), >= 0 (LESS_EQUAL) or = 0 (EQUAL),
+ * the first basis is all the logicals. The variables are the logicals [0, m) then the columns.
+ * optimize() starts from the last basis: new columns and changed costs keep it primal feasible (primal simplex),
+ * changed bounds and RHS keep it dual feasible once the boxed variables are moved to the right bound (dual simplex),
+ * otherwise a phase 1 (sum of infeasibilities) comes first
+ */
+public class SimplexRestrictedMaster implements RestrictedMaster {
+    static final int BASIC = 0;
+    static final int AT_LB = 1;
+    static final int AT_UB = 2;
+    static final int FREE = 3; // nonbasic at 0 without bounds
+
+    static final int OPTIMAL = 0;
+    static final int INFEASIBLE = 1;
+    static final int UNBOUNDED = 2;
+    static final int ITERATION_LIMIT = 3;
+
+    static final double PRIMAL_TOL = 1e-7;
+    static final double DUAL_TOL = 1e-7;
+    static final double PIVOT_TOL = 1e-9;
+    static final double ROUND_TOL = 1e-9; // the noise of binv below which a value is returned as an integer
+    static final int REFACTOR_INTERVAL = 100;
+    static final int DEGENERATE_LIMIT = 50; // degenerate pivots in a row before Bland's rule
+    static final int MAX_ROUNDS = 4;
+
+    int m;
+    double[] rhs;
+
+    // the variables
+    int numVars;
+    int[][] colRows;
+    double[][] colVals;
+    double[] cost;
+    double[] lb;
+    double[] ub;
+    double[] x;
+    double[] d; // reduced costs
+    int[] state;
+    boolean[] removed;
+    String[] names;
+    int[] handleOf;
+    int numRemoved;
+
+    // the handles
+    int[] slotOf; // -1 once removed
+    int numHandles;
+
+    int[] basisHead;
+    double[] binv; // row major, row k belongs to basisHead[k]
+    double[] pi;
+    double[] farkas; // the ray of the last optimize() if infeasible
+    int pivotsSinceFactor;
+    int numOfIterations;
+    int iterationCount; // of the last optimize()
+
+    int status = ITERATION_LIMIT;
+    double objValue;
+
+    @Override
+    public void addRows(char[] senses, double[] rhs, String[] rowNames) {
+        this.m = senses.length;
+        this.rhs = rhs.clone();
+        int capacity = Math.max(64, 2 * m);
+        this.colRows = new int[capacity][];
+        this.colVals = new double[capacity][];
+        this.cost = new double[capacity];
+        this.lb = new double[capacity];
+        this.ub = new double[capacity];
+        this.x = new double[capacity];
+        this.d = new double[capacity];
+        this.state = new int[capacity];
+        this.removed = new boolean[capacity];
+        this.names = new String[capacity];
+        this.handleOf = new int[capacity];
+        this.slotOf = new int[capacity];
+        this.basisHead = new int[m];
+        this.binv = new double[m * m];
+        this.pi = new double[m];
+        for (int i = 0; i < m; i++) {
+            colRows[i] = new int[]{i};
+            colVals[i] = new double[]{1};
+            lb[i] = senses[i] == GREATER_EQUAL ? -INFINITY : 0;
+            ub[i] = senses[i] == LESS_EQUAL ? INFINITY : 0;
+            names[i] = "r_" + rowNames[i];
+            handleOf[i] = -1;
+            basisHead[i] = i;
+            binv[i * m + i] = 1;
+        }
+        numVars = m;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= cost.length) {
+            return;
+        }
+        int capacity = Math.max(size, 2 * cost.length);
+        colRows = Arrays.copyOf(colRows, capacity);
+        colVals = Arrays.copyOf(colVals, capacity);
+        cost = Arrays.copyOf(cost, capacity);
+        lb = Arrays.copyOf(lb, capacity);
+        ub = Arrays.copyOf(ub, capacity);
+        x = Arrays.copyOf(x, capacity);
+        d = Arrays.copyOf(d, capacity);
+        state = Arrays.copyOf(state, capacity);
+        removed = Arrays.copyOf(removed, capacity);
+        names = Arrays.copyOf(names, capacity);
+        handleOf = Arrays.copyOf(handleOf, capacity);
+    }
+
+    @Override
+    public int[] addVars(double[] lbs, double[] ubs, double[] obj, int[][] rows, double[][] coeffs, String[] varNames) {
+        int cnt = lbs.length;
+        ensureCapacity(numVars + cnt);
+        if (slotOf.length < numHandles + cnt) {
+            slotOf = Arrays.copyOf(slotOf, Math.max(numHandles + cnt, 2 * slotOf.length));
+        }
+        int[] handles = new int[cnt];
+        for (int h = 0; h < cnt; h++) {
+            int j = numVars++;
+            colRows[j] = rows[h].clone();
+            colVals[j] = coeffs[h].clone();
+            cost[j] = obj[h];
+            lb[j] = lbs[h];
+            ub[j] = ubs[h];
+            state[j] = AT_LB;
+            x[j] = 0;
+            removed[j] = false;
+            names[j] = varNames[h];
+            handles[h] = numHandles;
+            handleOf[j] = numHandles;
+            slotOf[numHandles++] = j;
+        }
+        return handles;
+    }
+
+    @Override
+    public void removeVars(int[] handles) {
+        for (int handle : handles) {
+            int j = slotOf[handle];
+            slotOf[handle] = -1;
+            removed[j] = true;
+            colRows[j] = new int[0];
+            colVals[j] = new double[0];
+            cost[j] = 0;
+            lb[j] = 0;
+            ub[j] = 0;
+            if (state[j] != BASIC) {
+                x[j] = 0;
+            } // a basic one leaves the basis at the next factor()
+            numRemoved++;
+        }
+    }
+
+    @Override
+    public void setLB(int[] handles, double[] values) {
+        for (int h = 0; h < handles.length; h++) {
+            lb[slotOf[handles[h]]] = values[h];
+        }
+    }
+
+    @Override
+    public void setUB(int[] handles, double[] values) {
+        for (int h = 0; h < handles.length; h++) {
+            ub[slotOf[handles[h]]] = values[h];
+        }
+    }
+
+    @Override
+    public void setObj(int[] handles, double[] values) {
+        for (int h = 0; h < handles.length; h++) {
+            cost[slotOf[handles[h]]] = values[h];
+        }
+    }
+
+    @Override
+    public void setRHS(int row, double value) {
+        rhs[row] = value;
+    }
+
+    @Override
+    public double getRHS(int row) {
+        return rhs[row];
+    }
+
+    @Override
+    public boolean optimize() {
+        int before = numOfIterations;
+        farkas = null;
+        compact();
+        factor();
+        placeNonbasic();
+        status = solve();
+        objValue = 0;
+        for (int j = m; j < numVars; j++) {
+            objValue += cost[j] * x[j];
+        }
+        iterationCount = numOfIterations - before;
+        return status == OPTIMAL;
+    }
+
+    /**
+     * alternate the primal and the dual simplex until the basis is both primal and dual feasible
+     */
+    private int solve() {
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            computePrimal();
+            computeDuals(false);
+            int result;
+            if (isPrimalFeasible()) {
+                result = primal(false);
+            } else {
+                flipBoxed();
+                if (isDualFeasible()) {
+                    result = dual();
+                } else {
+                    result = primal(true);
+                    if (result == OPTIMAL) {
+                        result = primal(false);
+                    }
+                }
+            }
+            if (result != OPTIMAL) {
+                return result;
+            }
+            factor();
+            computePrimal();
+            computeDuals(false);
+            if (isPrimalFeasible() && isDualFeasible()) {
+                return OPTIMAL;
+            }
+        }
+        return ITERATION_LIMIT;
+    }
+
+    private int maxIterations() {
+        return Math.max(10_000, 20 * (m + numVars));
+    }
+
+    /**
+     * phase 1 minimizes the sum of the infeasibilities of the basic variables,
+     * an infeasible basic variable only blocks the step when it gets back to its bound
+     *
+     * @return OPTIMAL once phase 1 is feasible or phase 2 is optimal
+     */
+    private int primal(boolean phase1) {
+        double[] alpha = new double[m];
+        int degenerate = 0;
+        for (int iter = maxIterations(); iter > 0; iter--) {
+            if (pivotsSinceFactor >= REFACTOR_INTERVAL) {
+                factor();
+                computePrimal();
+            }
+            if (phase1 && isPrimalFeasible()) {
+                return OPTIMAL;
+            }
+            computeDuals(phase1);
+            boolean bland = degenerate > DEGENERATE_LIMIT;
+            int q = -1;
+            double best = 0;
+            for (int j = 0; j < numVars; j++) {
+                if (state[j] == BASIC || removed[j] || lb[j] == ub[j]) {
+                    continue;
+                }
+                double violation = switch (state[j]) {
+                    case AT_LB -> -d[j];
+                    case AT_UB -> d[j];
+                    default -> Math.abs(d[j]);
+                };
+                if (violation > DUAL_TOL && (q < 0 || (!bland && violation > best))) {
+                    q = j;
+                    best = violation;
+                    if (bland) {
+                        break;
+                    }
+                }
+            }
+            if (q < 0) {
+                if (phase1) {
+                    // no direction decreases the infeasibility: the duals of phase 1 are a Farkas ray
+                    farkas = pi.clone();
+                    return INFEASIBLE;
+                }
+                return OPTIMAL;
+            }
+            double dir = d[q] < 0 ? 1 : -1;
+            column(q, alpha);
+            int r = -1;
+            double step = INFINITY;
+            boolean toUpper = false;
+            for (int i = 0; i < m; i++) {
+                double rate = -dir * alpha[i]; // of the basic variable i per unit of step
+                if (Math.abs(alpha[i]) < PIVOT_TOL) {
+                    continue;
+                }
+                int v = basisHead[i];
+                double bound;
+                boolean upper;
+                if (rate < 0) {
+                    if (phase1 && x[v] > ub[v] + PRIMAL_TOL) {
+                        bound = ub[v];
+                        upper = true;
+                    } else if (phase1 && x[v] < lb[v] - PRIMAL_TOL || lb[v] <= -INFINITY) {
+                        continue;
+                    } else {
+                        bound = lb[v];
+                        upper = false;
+                    }
+                } else {
+                    if (phase1 && x[v] < lb[v] - PRIMAL_TOL) {
+                        bound = lb[v];
+                        upper = false;
+                    } else if (phase1 && x[v] > ub[v] + PRIMAL_TOL || ub[v] >= INFINITY) {
+                        continue;
+                    } else {
+                        bound = ub[v];
+                        upper = true;
+                    }
+                }
+                double t = Math.max(0, (bound - x[v]) / rate);
+                if (r < 0 || t < step - PIVOT_TOL
+                        || (t < step + PIVOT_TOL && (bland ? v < basisHead[r] : Math.abs(alpha[i]) > Math.abs(alpha[r])))) {
+                    r = i;
+                    step = t;
+                    toUpper = upper;
+                }
+            }
+            double range = ub[q] - lb[q];
+            if (range < step || (r < 0 && range < INFINITY)) { // the entering variable goes to its other bound
+                for (int i = 0; i < m; i++) {
+                    x[basisHead[i]] -= dir * range * alpha[i];
+                }
+                x[q] = state[q] == AT_LB ? ub[q] : lb[q];
+                state[q] = state[q] == AT_LB ? AT_UB : AT_LB;
+                degenerate = 0;
+                continue;
+            }
+            if (r < 0) {
+                return UNBOUNDED;
+            }
+            for (int i = 0; i < m; i++) {
+                x[basisHead[i]] -= dir * step * alpha[i];
+            }
+            x[q] += dir * step;
+            int v = basisHead[r];
+            x[v] = toUpper ? ub[v] : lb[v];
+            state[v] = toUpper ? AT_UB : AT_LB;
+            degenerate = step < PIVOT_TOL ? degenerate + 1 : 0;
+            pivot(r, q, alpha);
+        }
+        return ITERATION_LIMIT;
+    }
+
+    /**
+     * the dual simplex from a dual feasible basis, the leaving row is the most infeasible one
+     */
+    private int dual() {
+        double[] alpha = new double[m];
+        double[] rowAlpha = new double[numVars];
+        int degenerate = 0;
+        for (int iter = maxIterations(); iter > 0; iter--) {
+            if (pivotsSinceFactor >= REFACTOR_INTERVAL) {
+                factor();
+                computePrimal();
+            }
+            computeDuals(false);
+            boolean bland = degenerate > DEGENERATE_LIMIT;
+            int r = -1;
+            double worst = 0;
+            for (int i = 0; i < m; i++) {
+                int v = basisHead[i];
+                double infeasibility = Math.max(lb[v] - x[v], x[v] - ub[v]);
+                if (infeasibility > PRIMAL_TOL && (r < 0 || (bland ? v < basisHead[r] : infeasibility > worst))) {
+                    r = i;
+                    worst = infeasibility;
+                }
+            }
+            if (r < 0) {
+                return OPTIMAL;
+            }
+            int v = basisHead[r];
+            boolean toLower = x[v] < lb[v];
+            int q = -1;
+            double ratio = INFINITY;
+            int offset = r * m;
+            for (int j = 0; j < numVars; j++) {
+                if (state[j] == BASIC || removed[j] || lb[j] == ub[j]) {
+                    continue;
+                }
+                double a = 0;
+                int[] rows = colRows[j];
+                double[] vals = colVals[j];
+                for (int h = 0; h < rows.length; h++) {
+                    a += binv[offset + rows[h]] * vals[h];
+                }
+                rowAlpha[j] = a;
+                if (Math.abs(a) < PIVOT_TOL) {
+                    continue;
+                }
+                // x_B[r] moves by -a per unit of x_j: toLower needs it up
+                boolean up = toLower ? a < 0 : a > 0; // x_j has to increase
+                double dj;
+                if (up && (state[j] == AT_LB || state[j] == FREE)) {
+                    dj = Math.max(0, d[j]);
+                } else if (!up && (state[j] == AT_UB || state[j] == FREE)) {
+                    dj = Math.max(0, -d[j]);
+                } else {
+                    continue;
+                }
+                double t = dj / Math.abs(a);
+                if (q < 0 || t < ratio - PIVOT_TOL
+                        || (t < ratio + PIVOT_TOL && (bland ? j < q : Math.abs(a) > Math.abs(rowAlpha[q])))) {
+                    q = j;
+                    ratio = t;
+                }
+            }
+            if (q < 0) {
+                // row r of B^-1 bounds x_v within the bounds of the nonbasic variables, away from [lb, ub]
+                farkas = Arrays.copyOfRange(binv, offset, offset + m);
+                if (toLower) {
+                    for (int i = 0; i < m; i++) {
+                        farkas[i] = -farkas[i];
+                    }
+                }
+                return INFEASIBLE;
+            }
+            column(q, alpha);
+            double bound = toLower ? lb[v] : ub[v];
+            double step = (x[v] - bound) / alpha[r];
+            for (int i = 0; i < m; i++) {
+                x[basisHead[i]] -= step * alpha[i];
+            }
+            x[q] += step;
+            x[v] = bound;
+            state[v] = toLower ? AT_LB : AT_UB;
+            degenerate = ratio < PIVOT_TOL ? degenerate + 1 : 0;
+            pivot(r, q, alpha);
+        }
+        return ITERATION_LIMIT;
+    }
+
+    /**
+     * alpha = B^-1 a_j
+     */
+    private void column(int j, double[] alpha) {
+        Arrays.fill(alpha, 0);
+        int[] rows = colRows[j];
+        double[] vals = colVals[j];
+        for (int h = 0; h < rows.length; h++) {
+            int row = rows[h];
+            double val = vals[h];
+            for (int i = 0; i < m; i++) {
+                alpha[i] += binv[i * m + row] * val;
+            }
+        }
+    }
+
+    /**
+     * q replaces the basic variable of row r
+     */
+    private void pivot(int r, int q, double[] alpha) {
+        double p = alpha[r];
+        int offset = r * m;
+        for (int k = 0; k < m; k++) {
+            binv[offset + k] /= p;
+        }
+        for (int i = 0; i < m; i++) {
+            double f = alpha[i];
+            if (i == r || f == 0) {
+                continue;
+            }
+            int row = i * m;
+            for (int k = 0; k < m; k++) {
+                binv[row + k] -= f * binv[offset + k];
+            }
+        }
+        basisHead[r] = q;
+        state[q] = BASIC;
+        pivotsSinceFactor++;
+        numOfIterations++;
+    }
+
+    /**
+     * invert the basis by Gauss-Jordan, a dependent (or removed) basic column is replaced by a logical
+     */
+    private void factor() {
+        double[] b = new double[m * m];
+        double[] inv = new double[m * m];
+        for (int k = 0; k < m; k++) {
+            int v = basisHead[k];
+            if (v >= 0) {
+                int[] rows = colRows[v];
+                double[] vals = colVals[v];
+                for (int h = 0; h < rows.length; h++) {
+                    b[rows[h] * m + k] = vals[h];
+                }
+            }
+            inv[k * m + k] = 1;
+        }
+        boolean[] inBasis = new boolean[m]; // the basic logicals
+        for (int k = 0; k < m; k++) {
+            if (basisHead[k] >= 0 && basisHead[k] < m) {
+                inBasis[basisHead[k]] = true;
+            }
+        }
+        for (int k = 0; k < m; k++) {
+            int p = pivotRow(b, k, k);
+            if (p < 0) {
+                // the transformed e_c is column c of inv
+                int c = -1;
+                double best = PIVOT_TOL;
+                for (int logical = 0; logical < m; logical++) {
+                    if (inBasis[logical]) {
+                        continue;
+                    }
+                    for (int i = k; i < m; i++) {
+                        if (Math.abs(inv[i * m + logical]) > best) {
+                            best = Math.abs(inv[i * m + logical]);
+                            c = logical;
+                        }
+                    }
+                }
+                if (c < 0) {
+                    throw new IllegalStateException("singular basis");
+                }
+                int old = basisHead[k];
+                if (old >= 0) {
+                    state[old] = AT_LB;
+                    x[old] = lb[old] > -INFINITY ? lb[old] : (ub[old] < INFINITY ? ub[old] : 0);
+                    if (lb[old] <= -INFINITY) {
+                        state[old] = ub[old] < INFINITY ? AT_UB : FREE;
+                    }
+                }
+                basisHead[k] = c;
+                state[c] = BASIC;
+                inBasis[c] = true;
+                for (int i = 0; i < m; i++) {
+                    b[i * m + k] = inv[i * m + c];
+                }
+                p = pivotRow(b, k, k);
+            }
+            if (p != k) {
+                swapRows(b, p, k);
+                swapRows(inv, p, k);
+            }
+            double f = 1 / b[k * m + k];
+            for (int c = 0; c < m; c++) {
+                b[k * m + c] *= f;
+                inv[k * m + c] *= f;
+            }
+            for (int i = 0; i < m; i++) {
+                double g = b[i * m + k];
+                if (i == k || g == 0) {
+                    continue;
+                }
+                for (int c = k; c < m; c++) {
+                    b[i * m + c] -= g * b[k * m + c];
+                }
+                for (int c = 0; c < m; c++) {
+                    inv[i * m + c] -= g * inv[k * m + c];
+                }
+            }
+        }
+        binv = inv;
+        pivotsSinceFactor = 0;
+    }
+
+    private int pivotRow(double[] b, int column, int from) {
+        int p = -1;
+        double best = PIVOT_TOL;
+        for (int i = from; i < m; i++) {
+            if (Math.abs(b[i * m + column]) > best) {
+                best = Math.abs(b[i * m + column]);
+                p = i;
+            }
+        }
+        return p;
+    }
+
+    private void swapRows(double[] a, int i, int k) {
+        for (int c = 0; c < m; c++) {
+            double t = a[i * m + c];
+            a[i * m + c] = a[k * m + c];
+            a[k * m + c] = t;
+        }
+    }
+
+    /**
+     * the nonbasic variables at a bound, after the bounds have changed
+     */
+    private void placeNonbasic() {
+        for (int j = 0; j < numVars; j++) {
+            if (state[j] == BASIC) {
+                continue;
+            }
+            if (state[j] == AT_UB && ub[j] < INFINITY) {
+                x[j] = ub[j];
+            } else if (lb[j] > -INFINITY) {
+                state[j] = AT_LB;
+                x[j] = lb[j];
+            } else if (ub[j] < INFINITY) {
+                state[j] = AT_UB;
+                x[j] = ub[j];
+            } else {
+                state[j] = FREE;
+                x[j] = 0;
+            }
+        }
+    }
+
+    /**
+     * the nonbasic variables with two bounds at the bound where their reduced cost is dual feasible
+     */
+    private void flipBoxed() {
+        boolean flipped = false;
+        for (int j = 0; j < numVars; j++) {
+            if (state[j] == BASIC || lb[j] <= -INFINITY || ub[j] >= INFINITY) {
+                continue;
+            }
+            if (state[j] == AT_LB && d[j] < -DUAL_TOL) {
+                state[j] = AT_UB;
+                x[j] = ub[j];
+                flipped = true;
+            } else if (state[j] == AT_UB && d[j] > DUAL_TOL) {
+                state[j] = AT_LB;
+                x[j] = lb[j];
+                flipped = true;
+            }
+        }
+        if (flipped) {
+            computePrimal();
+        }
+    }
+
+    /**
+     * x_B = B^-1 (rhs - N x_N)
+     */
+    private void computePrimal() {
+        double[] residual = rhs.clone();
+        for (int j = 0; j < numVars; j++) {
+            if (state[j] == BASIC || x[j] == 0) {
+                continue;
+            }
+            int[] rows = colRows[j];
+            double[] vals = colVals[j];
+            for (int h = 0; h < rows.length; h++) {
+                residual[rows[h]] -= vals[h] * x[j];
+            }
+        }
+        for (int i = 0; i < m; i++) {
+            double value = 0;
+            int offset = i * m;
+            for (int k = 0; k < m; k++) {
+                value += binv[offset + k] * residual[k];
+            }
+            x[basisHead[i]] = value;
+        }
+    }
+
+    /**
+     * pi = c_B B^-1 and d = c - pi A, with the costs of phase 1 (-1 below the LB, +1 above the UB) if phase1
+     */
+    private void computeDuals(boolean phase1) {
+        Arrays.fill(pi, 0);
+        for (int i = 0; i < m; i++) {
+            int v = basisHead[i];
+            double c;
+            if (phase1) {
+                c = x[v] < lb[v] - PRIMAL_TOL ? -1 : (x[v] > ub[v] + PRIMAL_TOL ? 1 : 0);
+            } else {
+                c = cost[v];
+            }
+            if (c == 0) {
+                continue;
+            }
+            int offset = i * m;
+            for (int k = 0; k < m; k++) {
+                pi[k] += c * binv[offset + k];
+            }
+        }
+        for (int j = 0; j < numVars; j++) {
+            if (state[j] == BASIC) {
+                d[j] = 0;
+                continue;
+            }
+            double value = phase1 ? 0 : cost[j];
+            int[] rows = colRows[j];
+            double[] vals = colVals[j];
+            for (int h = 0; h < rows.length; h++) {
+                value -= pi[rows[h]] * vals[h];
+            }
+            d[j] = value;
+        }
+    }
+
+    private boolean isPrimalFeasible() {
+        for (int i = 0; i < m; i++) {
+            int v = basisHead[i];
+            if (x[v] < lb[v] - PRIMAL_TOL || x[v] > ub[v] + PRIMAL_TOL) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isDualFeasible() {
+        for (int j = 0; j < numVars; j++) {
+            if (state[j] == BASIC || removed[j] || lb[j] == ub[j]) {
+                continue;
+            }
+            if ((state[j] != AT_UB && d[j] < -DUAL_TOL) || (state[j] != AT_LB && d[j] > DUAL_TOL)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * drop the removed variables once they are more than the others
+     */
+    private void compact() {
+        if (numRemoved < 64 || 2 * numRemoved < numVars) {
+            return;
+        }
+        int[] newIndex = new int[numVars];
+        int cnt = 0;
+        for (int j = 0; j < numVars; j++) {
+            if (removed[j]) {
+                newIndex[j] = -1;
+                continue;
+            }
+            newIndex[j] = cnt;
+            colRows[cnt] = colRows[j];
+            colVals[cnt] = colVals[j];
+            cost[cnt] = cost[j];
+            lb[cnt] = lb[j];
+            ub[cnt] = ub[j];
+            x[cnt] = x[j];
+            state[cnt] = state[j];
+            removed[cnt] = false;
+            names[cnt] = names[j];
+            handleOf[cnt] = handleOf[j];
+            if (handleOf[cnt] >= 0) {
+                slotOf[handleOf[cnt]] = cnt;
+            }
+            cnt++;
+        }
+        for (int j = cnt; j < numVars; j++) {
+            colRows[j] = null;
+            colVals[j] = null;
+            names[j] = null;
+        }
+        for (int k = 0; k < m; k++) {
+            basisHead[k] = newIndex[basisHead[k]]; // -1: replaced by factor()
+        }
+        numVars = cnt;
+        numRemoved = 0;
+    }
+
+    @Override
+    public double getObjValue() {
+        return objValue;
+    }
+
+    @Override
+    public double[] getDuals() {
+        return pi.clone();
+    }
+
+    @Override
+    public double[] getValues(int[] handles) {
+        double[] values = new double[handles.length];
+        for (int h = 0; h < handles.length; h++) {
+            values[h] = clean(x[slotOf[handles[h]]]);
+        }
+        return values;
+    }
+
+    /**
+     * the data of RMP is integral, so the vertices are mostly integral: return them exactly as Gurobi does,
+     * LPsol and Node compare the values to 0 and 1 and cast the processing time of the left jobs to int
+     */
+    private static double clean(double value) {
+        double rounded = Math.rint(value);
+        return Math.abs(value - rounded) < ROUND_TOL ? rounded : value;
+    }
+
+    @Override
+    public double[] getReducedCosts(int[] handles) {
+        double[] values = new double[handles.length];
+        for (int h = 0; h < handles.length; h++) {
+            values[h] = d[slotOf[handles[h]]];
+        }
+        return values;
+    }
+
+    @Override
+    public double[] getFarkasDuals() {
+        return status == INFEASIBLE && farkas != null ? farkas.clone() : null;
+    }
+
+    @Override
+    public int[] getVarBasis(int[] handles) {
+        int[] values = new int[handles.length];
+        for (int h = 0; h < handles.length; h++) {
+            values[h] = switch (state[slotOf[handles[h]]]) {
+                case BASIC -> RestrictedMaster.BASIC;
+                case AT_UB -> NONBASIC_UPPER;
+                case FREE -> SUPERBASIC;
+                default -> NONBASIC_LOWER;
+            };
+        }
+        return values;
+    }
+
+    @Override
+    public int[] getRowBasis() {
+        int[] values = new int[m];
+        for (int i = 0; i < m; i++) {
+            values[i] = state[i] == BASIC ? RestrictedMaster.BASIC : NONBASIC_LOWER;
+        }
+        return values;
+    }
+
+    /**
+     * extra basic variables are made nonbasic and missing ones are replaced by logicals,
+     * factor() then swaps the dependent columns for logicals too
+     */
+    @Override
+    public void setBasis(int[] handles, int[] varBasis, int[] rowBasis) {
+        for (int j = m; j < numVars; j++) {
+            if (!removed[j]) {
+                state[j] = AT_LB;
+            }
+        }
+        for (int h = 0; h < handles.length; h++) {
+            state[slotOf[handles[h]]] = switch (varBasis[h]) {
+                case RestrictedMaster.BASIC -> BASIC;
+                case NONBASIC_UPPER -> AT_UB;
+                case SUPERBASIC -> FREE;
+                default -> AT_LB;
+            };
+        }
+        for (int i = 0; i < m; i++) {
+            state[i] = rowBasis[i] == RestrictedMaster.BASIC ? BASIC : AT_LB; // placeNonbasic picks the finite bound
+        }
+        int cnt = 0;
+        for (int j = 0; j < numVars; j++) {
+            if (state[j] != BASIC) {
+                continue;
+            }
+            if (cnt < m && !removed[j]) {
+                basisHead[cnt++] = j;
+            } else {
+                state[j] = AT_LB;
+            }
+        }
+        for (int i = 0; i < m && cnt < m; i++) {
+            if (state[i] != BASIC) {
+                state[i] = BASIC;
+                basisHead[cnt++] = i;
+            }
+        }
+    }
+
+    @Override
+    public int getIterationCount() {
+        return iterationCount;
+    }
+
+    @Override
+    public String[] getVarNames() {
+        String[] array = new String[numVars - m - numRemoved];
+        int cnt = 0;
+        for (int j = m; j < numVars; j++) {
+            if (!removed[j]) {
+                array[cnt++] = names[j];
+            }
+        }
+        return array;
+    }
+
+    @Override
+    public double[] getVarValues() {
+        double[] array = new double[numVars - m - numRemoved];
+        int cnt = 0;
+        for (int j = m; j < numVars; j++) {
+            if (!removed[j]) {
+                array[cnt++] = clean(x[j]);
+            }
+        }
+        return array;
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
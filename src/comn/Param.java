@@ -37,6 +37,33 @@ public class Param {
      */
     public static boolean dominanceFlag;
     public static boolean fathomingFlag;
+    public static String searchDirection; // FORWARD, BACKWARD or BIDIR
+    public static String jobOrder; // INDEX, P_DESC, RATIO_DESC or DUAL_DESC: the positions of the jobs in label setting
+    public static boolean dpPricingFlag; // the nodes without conflict jobs are priced by the knapsack DP (PricingDP)
+    public static boolean tieredPricingFlag; // greedy packing -> restricted label setting -> exact label setting
+    public static boolean patternCacheFlag; // heuristic: re-score the patterns of the last label setting before labeling
+    public static boolean incrementalPricingFlag; // forward label setting only relabels the partitions whose bound may have dropped
+    public static boolean symmetryFlag; // the jobs with equal p, dual and conflicts are taken in index order
+    public static double pricingTimeBudget; // seconds of one pricing call, <= 0 for no budget
+    public static long pricingLabelBudget; // labels of one pricing call, <= 0 for no budget
+    public static boolean poolPricingFlag; // the valid columns of the pool are only activated when they price out negative
+    public static int maxNumOfPoolColumns; // the max number of pool columns activated per iteration
+    public static int maxColumnAge; // the columns with a large reduced cost for so many RMP solves are archived, <= 0: never
+    public static double columnAgeReducedCost; // a reduced cost above it is large
+    public static String masterBackend; // GUROBI or SIMPLEX (the pure Java RMP, no license needed)
+    public static boolean warmStartBasisFlag; // a node solved after another subtree starts from the final basis of its parent
+    public static boolean farkasPricingFlag; // RMP without big-M artificial variables, an infeasible RMP is priced by its Farkas ray
+    public static boolean lagrangianBoundFlag; // stop column generation once the Lagrangian bound closes the node
+    public static String stabilization; // NONE, SMOOTHING (Wentges) or BOX (du Merle): the duals given to pricing
+    public static double smoothingAlpha; // the initial weight of the stability center, adjusted by the misprices
+    public static double boxWidth; // the half width of the box relative to |dual|
+    public static double boxSlack; // the upper bound of the slacks, the penalty of leaving the box
+    public static boolean pricingPortfolioFlag; // experimental, race the label setting against the MIP pricing
+    public static boolean enumerationFlag; // close the nodes with a small gap by column enumeration + IP
+    public static double enumerationMaxGap; // max of globalUB - 1 - LP objective to try the enumeration
+    public static int enumerationMaxColumns; // the enumeration gives up above this number of columns
+    public static boolean enumerateRootColumns; // small instances: all the maximal blocks are added at the root
+    public static long maxNumOfRootColumns; // at most this number of them, column generation adds the others
 
     public static int T;
     public static int t;
@@ -0,0 +1,425 @@
+package algo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * a check of SimplexRestrictedMaster without Gurobi: random LPs shaped like RMP (cover rows, the capacity row,
+ * the rows of the number of blocks, y, artificial and box variables and random blocks) go through random changes
+ * of the columns, bounds, objective and rhs. After each optimize() an optimal answer is verified by the KKT
+ * conditions (bounds, rows, dual signs, complementarity, reduced costs, objective) and an infeasible one by its
+ * Farkas certificate; some optimal LPs are solved again from their basis or from a random one given to setBasis().
+ * The exit status is 1 if any check fails.
+ * <p>
+ * java algo.SimplexCheck [trials] [seed], the system properties n, steps and noArtificial change the LPs
+ */
+public class SimplexCheck {
+    static final double INF = RestrictedMaster.INFINITY;
+    static final double TOL = 1e-6;
+
+    Random random;
+    SimplexRestrictedMaster lp;
+    // the mirror of the LP
+    int m;
+    char[] senses;
+    double[] rhs;
+    List<int[]> rows = new ArrayList<>();
+    List<double[]> coeffs = new ArrayList<>();
+    List<double[]> bounds = new ArrayList<>(); // lb, ub, cost
+    List<Boolean> alive = new ArrayList<>();
+
+    int numOfChecks;
+    int numOfOptimal;
+    int numOfInfeasible;
+    int numOfFailures;
+
+    public static void main(String[] args) {
+        int trials = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+        int maxN = Integer.getInteger("n", 25);
+        int steps = Integer.getInteger("steps", 40);
+        boolean noArtificial = Boolean.getBoolean("noArtificial");
+        SimplexCheck check = new SimplexCheck();
+        for (int t = 0; t < trials; t++) {
+            // with and without the artificial variables, the LPs without them are often infeasible
+            check.run(new Random(seed + t), maxN, steps, noArtificial || t % 2 == 1);
+        }
+        System.out.printf("simplex check: %d LPs, %d optimal, %d infeasible, %d failures%n",
+                check.numOfChecks, check.numOfOptimal, check.numOfInfeasible, check.numOfFailures);
+        if (check.numOfFailures > 0) {
+            System.exit(1);
+        }
+    }
+
+    void run(Random random, int maxN, int steps, boolean noArtificial) {
+        this.random = random;
+        int n = 3 + random.nextInt(maxN);
+        int T = 10 + random.nextInt(40);
+        int[] p = new int[n];
+        for (int i = 0; i < n; i++) {
+            p[i] = 1 + random.nextInt(T / 2);
+        }
+        m = n + 3;
+        senses = new char[m];
+        rhs = new double[m];
+        String[] names = new String[m];
+        for (int i = 0; i < n; i++) {
+            senses[i] = RestrictedMaster.GREATER_EQUAL;
+            rhs[i] = 1;
+            names[i] = "cover_" + i;
+        }
+        senses[n] = RestrictedMaster.LESS_EQUAL;
+        rhs[n] = T;
+        senses[n + 1] = RestrictedMaster.GREATER_EQUAL;
+        rhs[n + 1] = 0;
+        senses[n + 2] = RestrictedMaster.LESS_EQUAL;
+        rhs[n + 2] = n;
+        names[n] = "capacity";
+        names[n + 1] = "lbNumBlocks";
+        names[n + 2] = "ubNumBlocks";
+        rows.clear();
+        coeffs.clear();
+        bounds.clear();
+        alive.clear();
+        lp = new SimplexRestrictedMaster();
+        lp.addRows(senses, rhs, names);
+
+        int[][] yRows = new int[n][];
+        double[][] yCoeffs = new double[n][];
+        double[][] yBounds = new double[n][];
+        for (int i = 0; i < n; i++) {
+            yRows[i] = new int[]{i, n};
+            yCoeffs[i] = new double[]{1, p[i]};
+            yBounds[i] = new double[]{0, INF, p[i]};
+        }
+        int[] y = addVars(yRows, yCoeffs, yBounds);
+        if (!noArtificial) {
+            double bigM = n * (T + 5);
+            int[][] artificialRows = new int[n + 1][];
+            double[][] artificialBounds = new double[n + 1][];
+            for (int i = 0; i <= n; i++) {
+                artificialRows[i] = new int[]{i < n ? i : n + 1};
+                artificialBounds[i] = new double[]{0, INF, bigM};
+            }
+            addVars(artificialRows, null, artificialBounds);
+        }
+        int[][] boxRows = new int[2 * n][];
+        double[][] boxCoeffs = new double[2 * n][];
+        double[][] boxBounds = new double[2 * n][];
+        for (int i = 0; i < 2 * n; i++) {
+            boxRows[i] = new int[]{i % n};
+            boxCoeffs[i] = new double[]{i < n ? 1 : -1};
+            boxBounds[i] = new double[]{0, 0, 0};
+        }
+        int[] box = addVars(boxRows, boxCoeffs, boxBounds);
+
+        List<Integer> blocks = new ArrayList<>();
+        for (int step = 0; step < steps; step++) {
+            int op = random.nextInt(8);
+            if (op <= 2 || blocks.isEmpty()) {
+                addBlocks(blocks, p, T, n);
+            } else if (op == 3) {
+                fixBlocks(blocks);
+            } else if (op == 4) {
+                fixY(y);
+            } else if (op == 5) {
+                changeRHS(n, T);
+            } else if (op == 6) {
+                removeBlocks(blocks);
+            } else {
+                moveBox(box, n, T);
+            }
+            String error = check();
+            if (error != null) {
+                numOfFailures++;
+                System.out.println("n " + n + " step " + step + " op " + op + ": " + error);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param rowCoeffs null: all the coefficients are 1
+     */
+    int[] addVars(int[][] varRows, double[][] rowCoeffs, double[][] varBounds) {
+        int cnt = varRows.length;
+        double[] lb = new double[cnt];
+        double[] ub = new double[cnt];
+        double[] obj = new double[cnt];
+        double[][] values = new double[cnt][];
+        String[] names = new String[cnt];
+        for (int h = 0; h < cnt; h++) {
+            if (rowCoeffs == null) {
+                values[h] = new double[varRows[h].length];
+                Arrays.fill(values[h], 1);
+            } else {
+                values[h] = rowCoeffs[h];
+            }
+            lb[h] = varBounds[h][0];
+            ub[h] = varBounds[h][1];
+            obj[h] = varBounds[h][2];
+            names[h] = "v_" + (rows.size() + h);
+        }
+        int[] handles = lp.addVars(lb, ub, obj, varRows, values, names);
+        for (int h = 0; h < cnt; h++) {
+            if (handles[h] != rows.size()) {
+                throw new IllegalStateException("unexpected handle " + handles[h]);
+            }
+            rows.add(varRows[h]);
+            coeffs.add(values[h]);
+            bounds.add(varBounds[h].clone());
+            alive.add(true);
+        }
+        return handles;
+    }
+
+    void addBlocks(List<Integer> blocks, int[] p, int T, int n) {
+        int cnt = 1 + random.nextInt(6);
+        int[][] blockRows = new int[cnt][];
+        double[][] blockBounds = new double[cnt][];
+        for (int h = 0; h < cnt; h++) {
+            List<Integer> jobs = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                jobs.add(i);
+            }
+            Collections.shuffle(jobs, random);
+            List<Integer> block = new ArrayList<>();
+            int load = 0;
+            for (int i : jobs) {
+                if (load + p[i] <= T && random.nextInt(3) > 0) {
+                    block.add(i);
+                    load += p[i];
+                }
+            }
+            Collections.sort(block);
+            block.add(n + 1);
+            block.add(n + 2);
+            blockRows[h] = block.stream().mapToInt(Integer::intValue).toArray();
+            blockBounds[h] = new double[]{0, random.nextInt(5) == 0 ? 0 : INF, T + 5};
+        }
+        for (int handle : addVars(blockRows, null, blockBounds)) {
+            blocks.add(handle);
+        }
+    }
+
+    void fixBlocks(List<Integer> blocks) {
+        int cnt = 1 + random.nextInt(4);
+        int[] handles = new int[cnt];
+        double[] values = new double[cnt];
+        Set<Integer> seen = new HashSet<>();
+        int size = 0;
+        for (int k = 0; k < cnt; k++) {
+            int handle = blocks.get(random.nextInt(blocks.size()));
+            if (seen.add(handle)) {
+                handles[size] = handle;
+                values[size] = random.nextBoolean() ? 0 : INF;
+                bounds.get(handle)[1] = values[size++];
+            }
+        }
+        lp.setUB(Arrays.copyOf(handles, size), Arrays.copyOf(values, size));
+    }
+
+    void fixY(int[] y) {
+        int i = random.nextInt(y.length);
+        int kind = random.nextInt(3); // free, 0 or 1
+        double lb = kind == 2 ? 1 : 0;
+        double ub = kind == 0 ? INF : (kind == 1 ? 0 : 1);
+        lp.setLB(new int[]{y[i]}, new double[]{lb});
+        lp.setUB(new int[]{y[i]}, new double[]{ub});
+        bounds.get(y[i])[0] = lb;
+        bounds.get(y[i])[1] = ub;
+    }
+
+    void changeRHS(int n, int T) {
+        int row = n + random.nextInt(3);
+        double value = row == n ? T - random.nextInt(T / 2) : random.nextInt(n + 1);
+        rhs[row] = value;
+        lp.setRHS(row, value);
+    }
+
+    void removeBlocks(List<Integer> blocks) {
+        int cnt = 1 + random.nextInt(Math.min(3, blocks.size()));
+        Set<Integer> removed = new HashSet<>();
+        for (int k = 0; k < cnt; k++) {
+            removed.add(blocks.get(random.nextInt(blocks.size())));
+        }
+        lp.removeVars(removed.stream().mapToInt(Integer::intValue).toArray());
+        for (int handle : removed) {
+            alive.set(handle, false);
+            blocks.remove((Integer) handle);
+        }
+    }
+
+    void moveBox(int[] box, int n, int T) {
+        boolean on = random.nextBoolean();
+        double[] ub = new double[2 * n];
+        double[] obj = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            double center = random.nextDouble() * T;
+            double width = 0.1 * center + 1e-6;
+            obj[i] = center + width;
+            obj[n + i] = -(center - width);
+            ub[i] = on ? 0.1 : 0;
+            ub[n + i] = ub[i];
+        }
+        lp.setObj(box, obj);
+        lp.setUB(box, ub);
+        for (int k = 0; k < 2 * n; k++) {
+            bounds.get(box[k])[1] = ub[k];
+            bounds.get(box[k])[2] = obj[k];
+        }
+    }
+
+    /**
+     * @return null if the answer of optimize() is right
+     */
+    String check() {
+        numOfChecks++;
+        if (lp.optimize()) {
+            numOfOptimal++;
+            String error = checkKKT();
+            return error != null || random.nextInt(4) > 0 ? error : checkBasis();
+        }
+        if (lp.getFarkasDuals() == null) {
+            return "neither optimal nor infeasible, status " + lp.status;
+        }
+        numOfInfeasible++;
+        return checkFarkas();
+    }
+
+    int[] aliveVars() {
+        int[] vars = new int[rows.size()];
+        int cnt = 0;
+        for (int v = 0; v < rows.size(); v++) {
+            if (alive.get(v)) {
+                vars[cnt++] = v;
+            }
+        }
+        return Arrays.copyOf(vars, cnt);
+    }
+
+    String checkKKT() {
+        int[] vars = aliveVars();
+        double[] x = lp.getValues(vars);
+        double[] reducedCosts = lp.getReducedCosts(vars);
+        double[] duals = lp.getDuals();
+        double[] activity = new double[m];
+        double obj = 0;
+        for (int h = 0; h < vars.length; h++) {
+            int v = vars[h];
+            double[] b = bounds.get(v);
+            if (x[h] < b[0] - TOL || x[h] > b[1] + TOL) {
+                return "bound of var " + v + ": " + x[h];
+            }
+            double reducedCost = b[2];
+            int[] varRows = rows.get(v);
+            double[] values = coeffs.get(v);
+            for (int k = 0; k < varRows.length; k++) {
+                activity[varRows[k]] += values[k] * x[h];
+                reducedCost -= duals[varRows[k]] * values[k];
+            }
+            if (Math.abs(reducedCost - reducedCosts[h]) > 1e-5 * Math.max(1, Math.abs(reducedCost))) {
+                return "reduced cost of var " + v + ": " + reducedCosts[h] + " instead of " + reducedCost;
+            }
+            boolean atLB = Math.abs(x[h] - b[0]) < TOL;
+            boolean atUB = b[1] < INF && Math.abs(x[h] - b[1]) < TOL;
+            if (reducedCost < -1e-5 && !atUB || reducedCost > 1e-5 && !atLB) {
+                return "reduced cost " + reducedCost + " of var " + v + " at " + x[h];
+            }
+            obj += b[2] * x[h];
+        }
+        for (int i = 0; i < m; i++) {
+            double slack = activity[i] - rhs[i];
+            if (senses[i] == RestrictedMaster.GREATER_EQUAL && (slack < -TOL || duals[i] < -1e-5)
+                    || senses[i] == RestrictedMaster.LESS_EQUAL && (slack > TOL || duals[i] > 1e-5)) {
+                return "row " + i + ": slack " + slack + ", dual " + duals[i];
+            }
+            if (Math.abs(slack) > TOL && Math.abs(duals[i]) > 1e-5) {
+                return "complementarity of row " + i;
+            }
+        }
+        if (Math.abs(obj - lp.getObjValue()) > 1e-5 * Math.max(1, Math.abs(obj))) {
+            return "objective " + lp.getObjValue() + " instead of " + obj;
+        }
+        return null;
+    }
+
+    /**
+     * setBasis() with the optimal basis or a random one (repaired by setBasis() and factor()),
+     * optimize() must find the same objective
+     */
+    String checkBasis() {
+        double obj = lp.getObjValue();
+        int[] vars = aliveVars();
+        int[] varBasis = lp.getVarBasis(vars);
+        int[] rowBasis = lp.getRowBasis();
+        boolean scrambled = random.nextBoolean();
+        if (scrambled) {
+            int[] codes = {RestrictedMaster.BASIC, RestrictedMaster.NONBASIC_LOWER, RestrictedMaster.NONBASIC_UPPER};
+            for (int h = 0; h < vars.length; h++) {
+                varBasis[h] = codes[random.nextInt(codes.length)];
+            }
+            for (int i = 0; i < m; i++) {
+                rowBasis[i] = random.nextBoolean() ? RestrictedMaster.BASIC : RestrictedMaster.NONBASIC_LOWER;
+            }
+        }
+        lp.setBasis(vars, varBasis, rowBasis);
+        if (!lp.optimize()) {
+            return "not optimal after setBasis, scrambled " + scrambled;
+        }
+        if (!scrambled && lp.getIterationCount() > 0) {
+            return lp.getIterationCount() + " iterations from the optimal basis";
+        }
+        String error = checkKKT();
+        if (error == null && Math.abs(lp.getObjValue() - obj) > 1e-5 * Math.max(1, Math.abs(obj))) {
+            error = "objective " + lp.getObjValue() + " instead of " + obj;
+        }
+        return error == null ? null : "after setBasis, scrambled " + scrambled + ": " + error;
+    }
+
+    /**
+     * the ray has the signs of the duals and max of ray * Ax within the bounds < ray * rhs
+     */
+    String checkFarkas() {
+        double[] ray = lp.getFarkasDuals();
+        double scale = 0;
+        for (double value : ray) {
+            scale = Math.max(scale, Math.abs(value));
+        }
+        if (scale < 1e-12) {
+            return "zero Farkas ray";
+        }
+        double bound = 0;
+        for (int i = 0; i < m; i++) {
+            double r = ray[i] / scale;
+            if (senses[i] == RestrictedMaster.GREATER_EQUAL && r < -1e-7 || senses[i] == RestrictedMaster.LESS_EQUAL && r > 1e-7) {
+                return "sign of the Farkas ray at row " + i + ": " + r;
+            }
+            bound += r * rhs[i];
+        }
+        double max = 0;
+        for (int v : aliveVars()) {
+            double a = 0;
+            int[] varRows = rows.get(v);
+            double[] values = coeffs.get(v);
+            for (int k = 0; k < varRows.length; k++) {
+                a += ray[varRows[k]] / scale * values[k];
+            }
+            double[] b = bounds.get(v);
+            if (a > 1e-9) {
+                if (b[1] >= INF) {
+                    return "Farkas ray unbounded at var " + v;
+                }
+                max += a * b[1];
+            } else if (a < -1e-9) {
+                max += a * b[0];
+            }
+        }
+        return max < bound - 1e-7 ? null : "Farkas ray: max " + max + " >= " + bound;
+    }
+}